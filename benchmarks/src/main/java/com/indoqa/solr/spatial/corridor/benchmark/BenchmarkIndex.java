@@ -0,0 +1,170 @@
+/*
+ * Licensed to the Indoqa Software Design und Beratung GmbH (Indoqa) under
+ * one or more contributor license agreements. See the NOTICE file distributed
+ * with this work for additional information regarding copyright ownership.
+ * Indoqa licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.indoqa.solr.spatial.corridor.benchmark;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.indoqa.solr.spatial.corridor.BatchDoubleValues;
+import com.indoqa.solr.spatial.corridor.CorridorRangeQuery;
+import com.indoqa.solr.spatial.corridor.LineStringUtils;
+import com.indoqa.solr.spatial.corridor.binary.BinaryLineStringUtils;
+import com.indoqa.solr.spatial.corridor.wkt.WktUtils;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.BinaryDocValuesField;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.DoubleDocValuesField;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.queries.function.FunctionValues;
+import org.apache.lucene.queries.function.ValueSource;
+import org.apache.lucene.queries.function.valuesource.DoubleFieldSource;
+import org.apache.lucene.queries.function.valuesource.VectorValueSource;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.BytesRef;
+
+/**
+ * A single segment in memory index with either locations (latitude/longitude doc values, like the sub fields of
+ * solr.LatLonType) or routes (stored WKT, binary doc values and numeric hash doc values, like the fields written by the
+ * LinestringHashUpdateProcessorFactory).
+ */
+public final class BenchmarkIndex implements Closeable {
+
+    public static final String LATITUDE_FIELD = "latitude";
+    public static final String LONGITUDE_FIELD = "longitude";
+    public static final String ROUTE_FIELD = "route";
+    public static final String ROUTE_BINARY_FIELD = "routeBinary";
+    public static final String ROUTE_HASH_FIELD = "routeHash";
+
+    private final Directory directory;
+    private final DirectoryReader reader;
+
+    private BenchmarkIndex(Directory directory) throws IOException {
+        this.directory = directory;
+        this.reader = DirectoryReader.open(directory);
+    }
+
+    /**
+     * @param coordinates longitude and latitude of each location
+     */
+    public static BenchmarkIndex createLocations(double[] coordinates) throws IOException {
+        Directory directory = new ByteBuffersDirectory();
+
+        try (IndexWriter indexWriter = createIndexWriter(directory)) {
+            for (int i = 0; i < coordinates.length / 2; i++) {
+                Document document = new Document();
+                document.add(new DoubleDocValuesField(LONGITUDE_FIELD, coordinates[i * 2]));
+                document.add(new DoubleDocValuesField(LATITUDE_FIELD, coordinates[i * 2 + 1]));
+                indexWriter.addDocument(document);
+            }
+            indexWriter.forceMerge(1);
+        }
+
+        return new BenchmarkIndex(directory);
+    }
+
+    public static BenchmarkIndex createRoutes(List<String> routes) throws IOException {
+        Directory directory = new ByteBuffersDirectory();
+
+        try (IndexWriter indexWriter = createIndexWriter(directory)) {
+            for (String route : routes) {
+                Document document = new Document();
+                document.add(new StoredField(ROUTE_FIELD, route));
+                document.add(new BinaryDocValuesField(ROUTE_BINARY_FIELD,
+                    new BytesRef(BinaryLineStringUtils.encode(WktUtils.parseLineString(route)))));
+                document.add(new NumericDocValuesField(ROUTE_HASH_FIELD, LineStringUtils.calculateHash(route)));
+                indexWriter.addDocument(document);
+            }
+            indexWriter.forceMerge(1);
+        }
+
+        return new BenchmarkIndex(directory);
+    }
+
+    /**
+     * @return the location as [latitude, longitude], like the value source of solr.LatLonType.
+     */
+    public static ValueSource createLocationValueSource() {
+        return new VectorValueSource(Arrays.asList(new DoubleFieldSource(LATITUDE_FIELD), new DoubleFieldSource(LONGITUDE_FIELD)));
+    }
+
+    private static IndexWriter createIndexWriter(Directory directory) throws IOException {
+        return new IndexWriter(directory, new IndexWriterConfig(new StandardAnalyzer()));
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.reader.close();
+        this.directory.close();
+    }
+
+    /**
+     * Evaluates the value source for all documents, like a filter or sort over the whole segment does.
+     */
+    public double evaluate(ValueSource valueSource) throws IOException {
+        Map<Object, Object> context = new HashMap<>();
+        FunctionValues values = valueSource.getValues(context, this.getLeafReaderContext());
+
+        double result = 0;
+        for (int docId = 0; docId < this.getMaxDoc(); docId++) {
+            result += values.doubleVal(docId);
+        }
+        return result;
+    }
+
+    /**
+     * Evaluates the value source for all documents in blocks of <code>batchSize</code> documents, like the parallel
+     * {@link CorridorRangeQuery} does for {@link BatchDoubleValues}.
+     */
+    public double evaluateBatches(ValueSource valueSource, int batchSize) throws IOException {
+        Map<Object, Object> context = new HashMap<>();
+        BatchDoubleValues values = (BatchDoubleValues) valueSource.getValues(context, this.getLeafReaderContext());
+        int[] docIds = new int[batchSize];
+        double[] batch = new double[batchSize];
+
+        double result = 0;
+        for (int fromDoc = 0; fromDoc < this.getMaxDoc(); fromDoc += batchSize) {
+            int count = Math.min(batchSize, this.getMaxDoc() - fromDoc);
+            for (int i = 0; i < count; i++) {
+                docIds[i] = fromDoc + i;
+            }
+
+            values.doubleVals(docIds, count, batch);
+            for (int i = 0; i < count; i++) {
+                result += batch[i];
+            }
+        }
+        return result;
+    }
+
+    public LeafReaderContext getLeafReaderContext() {
+        return this.reader.leaves().get(0);
+    }
+
+    public int getMaxDoc() {
+        return this.reader.maxDoc();
+    }
+}
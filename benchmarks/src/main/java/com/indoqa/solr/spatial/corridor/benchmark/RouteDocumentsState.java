@@ -0,0 +1,112 @@
+/*
+ * Licensed to the Indoqa Software Design und Beratung GmbH (Indoqa) under
+ * one or more contributor license agreements. See the NOTICE file distributed
+ * with this work for additional information regarding copyright ownership.
+ * Indoqa licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.indoqa.solr.spatial.corridor.benchmark;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.indoqa.solr.spatial.corridor.LineStringUtils;
+import com.indoqa.solr.spatial.corridor.LineStringValueSource;
+import com.indoqa.solr.spatial.corridor.binary.BinaryLineStringValueSource;
+import org.apache.lucene.queries.function.ValueSource;
+import org.apache.lucene.queries.function.valuesource.LongFieldSource;
+import org.locationtech.jts.geom.Point;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * {@value #ROUTE_COUNT} route documents and query points along the first route, for the value sources that evaluate query
+ * points against the route of each document.
+ */
+@State(Scope.Benchmark)
+public class RouteDocumentsState {
+
+    public static final int ROUTE_COUNT = 50;
+    public static final int QUERY_POINT_COUNT = 5;
+
+    @Param({"1000", "10000", "50000"})
+    public int vertices;
+
+    /**
+     * <code>wkt</code> parses the stored route (by its hash), <code>binary</code> decodes the binary doc values.
+     */
+    @Param({"wkt", "binary"})
+    public String source;
+
+    /**
+     * <code>cold</code> purges all route caches before each invocation, <code>warm</code> keeps them.
+     */
+    @Param({"cold", "warm"})
+    public String cache;
+
+    private BenchmarkIndex index;
+    private ValueSource routeValueSource;
+    private ValueSource routeHashValueSource;
+    private List<Point> queryPoints;
+
+    public BenchmarkIndex getIndex() {
+        return this.index;
+    }
+
+    public List<Point> getQueryPoints() {
+        return this.queryPoints;
+    }
+
+    public ValueSource getRouteHashValueSource() {
+        return this.routeHashValueSource;
+    }
+
+    public ValueSource getRouteValueSource() {
+        return this.routeValueSource;
+    }
+
+    @Setup(Level.Invocation)
+    public void purgeCaches() {
+        if ("cold".equals(this.cache)) {
+            LineStringUtils.purgeCache();
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        List<String> routes = new ArrayList<>();
+        for (int i = 0; i < ROUTE_COUNT; i++) {
+            routes.add(Routes.createRandomWalkWkt(this.vertices, i));
+        }
+
+        this.index = BenchmarkIndex.createRoutes(routes);
+        this.queryPoints = Routes.samplePoints(Routes.createRandomWalk(this.vertices, 0), QUERY_POINT_COUNT);
+        this.routeHashValueSource = new LongFieldSource(BenchmarkIndex.ROUTE_HASH_FIELD);
+
+        if ("binary".equals(this.source)) {
+            this.routeValueSource = new BinaryLineStringValueSource(BenchmarkIndex.ROUTE_BINARY_FIELD);
+        } else {
+            this.routeValueSource = new LineStringValueSource(BenchmarkIndex.ROUTE_FIELD);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        this.index.close();
+        LineStringUtils.purgeCache();
+    }
+}
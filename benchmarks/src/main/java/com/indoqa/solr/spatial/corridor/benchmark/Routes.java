@@ -0,0 +1,115 @@
+/*
+ * Licensed to the Indoqa Software Design und Beratung GmbH (Indoqa) under
+ * one or more contributor license agreements. See the NOTICE file distributed
+ * with this work for additional information regarding copyright ownership.
+ * Indoqa licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.indoqa.solr.spatial.corridor.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.Point;
+
+/**
+ * Synthetic routes for benchmarks: random walks with a realistic vertex spacing (about 50 meters) around Vienna.
+ */
+public final class Routes {
+
+    private static final GeometryFactory GEOMETRY_FACTORY = new GeometryFactory();
+
+    private Routes() {
+        // hide utility class constructor
+    }
+
+    /**
+     * @return longitude and latitude of <code>count</code> random points within the envelope of the coordinates, extended by
+     * about one kilometer.
+     */
+    public static double[] createPointsAround(double[] coordinates, int count, long seed) {
+        double minX = Double.POSITIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < coordinates.length / 2; i++) {
+            minX = Math.min(minX, coordinates[i * 2]);
+            minY = Math.min(minY, coordinates[i * 2 + 1]);
+            maxX = Math.max(maxX, coordinates[i * 2]);
+            maxY = Math.max(maxY, coordinates[i * 2 + 1]);
+        }
+
+        Random random = new Random(seed);
+        double[] result = new double[count * 2];
+        for (int i = 0; i < count; i++) {
+            result[i * 2] = minX - 0.015 + random.nextDouble() * (maxX - minX + 0.03);
+            result[i * 2 + 1] = minY - 0.01 + random.nextDouble() * (maxY - minY + 0.02);
+        }
+        return result;
+    }
+
+    public static double[] createRandomWalk(int vertices, long seed) {
+        Random random = new Random(seed);
+        double[] result = new double[vertices * 2];
+
+        double x = 16.3;
+        double y = 48.2;
+        for (int i = 0; i < vertices; i++) {
+            x += (random.nextDouble() - 0.4) * 0.0007;
+            y += (random.nextDouble() - 0.5) * 0.0007;
+
+            result[i * 2] = Math.round(x * 1e6) / 1e6;
+            result[i * 2 + 1] = Math.round(y * 1e6) / 1e6;
+        }
+
+        return result;
+    }
+
+    /**
+     * @return <code>count</code> vertices evenly distributed from the start to the end of the route.
+     */
+    public static List<Point> samplePoints(double[] coordinates, int count) {
+        int vertices = coordinates.length / 2;
+        List<Point> result = new ArrayList<>();
+
+        for (int i = 0; i < count; i++) {
+            int vertex = count > 1 ? (int) ((long) i * (vertices - 1) / (count - 1)) : 0;
+            result.add(GEOMETRY_FACTORY.createPoint(new Coordinate(coordinates[vertex * 2], coordinates[vertex * 2 + 1])));
+        }
+
+        return result;
+    }
+
+    public static String createRandomWalkWkt(int vertices, long seed) {
+        return toWkt(createRandomWalk(vertices, seed));
+    }
+
+    public static String toWkt(double[] coordinates) {
+        int vertices = coordinates.length / 2;
+        StringBuilder result = new StringBuilder(vertices * 22 + 12);
+
+        result.append("LINESTRING(");
+        for (int i = 0; i < vertices; i++) {
+            if (i > 0) {
+                result.append(", ");
+            }
+
+            result.append(coordinates[i * 2]).append(' ').append(coordinates[i * 2 + 1]);
+        }
+        result.append(')');
+
+        return result.toString();
+    }
+}
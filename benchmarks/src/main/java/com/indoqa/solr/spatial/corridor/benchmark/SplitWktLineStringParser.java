@@ -0,0 +1,57 @@
+/*
+ * Licensed to the Indoqa Software Design und Beratung GmbH (Indoqa) under
+ * one or more contributor license agreements. See the NOTICE file distributed
+ * with this work for additional information regarding copyright ownership.
+ * Indoqa licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.indoqa.solr.spatial.corridor.benchmark;
+
+import java.util.Arrays;
+
+import org.apache.commons.lang3.StringUtils;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.LineString;
+
+/**
+ * The split based WKT parser of WktUtils up to v8.11.2.0, kept as baseline for {@link WktLineStringParserBenchmark}.
+ */
+public final class SplitWktLineStringParser {
+
+    private static final GeometryFactory GEOMETRY_FACTORY = new GeometryFactory();
+
+    private SplitWktLineStringParser() {
+        // hide utility class constructor
+    }
+
+    public static LineString parseLineString(String corridorLineString) {
+        String rawCoordinates = StringUtils.substringBetween(corridorLineString, "LINESTRING(", ")");
+        if (rawCoordinates == null || rawCoordinates.trim().isEmpty()) {
+            return GEOMETRY_FACTORY.createLineString((Coordinate[]) null);
+        }
+        String[] coordinates = rawCoordinates.trim().split(",");
+
+        Coordinate[] wktCoordinates = Arrays.stream(coordinates).map(SplitWktLineStringParser::createCoordinate).toArray(Coordinate[]::new);
+        return GEOMETRY_FACTORY.createLineString(wktCoordinates);
+    }
+
+    private static Coordinate createCoordinate(String rawCoordinates) {
+        String[] points = rawCoordinates.trim().split(" ");
+
+        Coordinate coordinate = new Coordinate();
+        coordinate.x = Double.parseDouble(points[0]);
+        coordinate.y = Double.parseDouble(points[1]);
+        GEOMETRY_FACTORY.getPrecisionModel().makePrecise(coordinate);
+        return coordinate;
+    }
+}
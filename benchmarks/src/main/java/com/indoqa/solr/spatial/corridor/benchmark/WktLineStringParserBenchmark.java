@@ -0,0 +1,66 @@
+/*
+ * Licensed to the Indoqa Software Design und Beratung GmbH (Indoqa) under
+ * one or more contributor license agreements. See the NOTICE file distributed
+ * with this work for additional information regarding copyright ownership.
+ * Indoqa licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.indoqa.solr.spatial.corridor.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import com.indoqa.solr.spatial.corridor.wkt.WktUtils;
+import org.locationtech.jts.geom.LineString;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the single pass WKT scanner of {@link WktUtils#parseLineString(String)} with the former split based parser. Run
+ * with <code>-prof gc</code> to see the allocation rate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WktLineStringParserBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    private int vertices;
+
+    private String wkt;
+
+    @Setup
+    public void setup() {
+        this.wkt = Routes.createRandomWalkWkt(this.vertices, 42);
+    }
+
+    @Benchmark
+    public LineString singlePass() {
+        return WktUtils.parseLineString(this.wkt);
+    }
+
+    @Benchmark
+    public LineString split() {
+        return SplitWktLineStringParser.parseLineString(this.wkt);
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * Licensed to the Indoqa Software Design und Beratung GmbH (Indoqa) under
+ * one or more contributor license agreements. See the NOTICE file distributed
+ * with this work for additional information regarding copyright ownership.
+ * Indoqa licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.indoqa.solr.spatial.corridor.direction;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import com.indoqa.solr.spatial.corridor.benchmark.RouteDocumentsState;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * inPointsDirection of the query points against all route documents per operation, with the defaults of
+ * {@link InDirectionValueSourceParser}; the score is the time per document.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InDirectionValueSourceBenchmark {
+
+    @Benchmark
+    @OperationsPerInvocation(RouteDocumentsState.ROUTE_COUNT)
+    public double inPointsDirection(RouteDocumentsState state) throws IOException {
+        return state.getIndex().evaluate(new InDirectionValueSource(state.getQueryPoints(), state.getRouteValueSource(),
+            state.getRouteHashValueSource(), 0, false, 0, 0.0001, 100, false));
+    }
+}
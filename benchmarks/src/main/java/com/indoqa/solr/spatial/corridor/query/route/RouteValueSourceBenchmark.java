@@ -0,0 +1,133 @@
+/*
+ * Licensed to the Indoqa Software Design und Beratung GmbH (Indoqa) under
+ * one or more contributor license agreements. See the NOTICE file distributed
+ * with this work for additional information regarding copyright ownership.
+ * Indoqa licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.indoqa.solr.spatial.corridor.query.route;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import com.indoqa.solr.spatial.corridor.benchmark.BenchmarkIndex;
+import com.indoqa.solr.spatial.corridor.benchmark.Routes;
+import com.indoqa.solr.spatial.corridor.geo.DistanceStrategy;
+import com.indoqa.solr.spatial.corridor.wkt.WktUtils;
+import org.apache.lucene.queries.function.ValueSource;
+import org.locationtech.jts.geom.LineString;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * corridorDistance and corridorPosition of {@value #POI_COUNT} locations (POIs scattered around the route) per operation; the
+ * score is the time per document. With <code>-prof gc</code>, <code>gc.alloc.rate.norm</code> shows the bytes allocated per
+ * document: none besides the per segment setup, except for the geodesic distance (GeographicLib allocates its results).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RouteValueSourceBenchmark {
+
+    private static final int POI_COUNT = 10000;
+    private static final int BATCH_SIZE = 256;
+    private static final double BUFFER = 2;
+
+    @Param({"1000", "10000", "50000"})
+    private int vertices;
+
+    private BenchmarkIndex index;
+    private ValueSource distanceValueSource;
+    private ValueSource haversineDistanceValueSource;
+    private ValueSource positionValueSource;
+    private ValueSource withinValueSource;
+
+    @Benchmark
+    @OperationsPerInvocation(POI_COUNT)
+    public double corridorDistance() throws IOException {
+        return this.index.evaluate(this.distanceValueSource);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POI_COUNT)
+    public double corridorDistanceBatch() throws IOException {
+        return this.index.evaluateBatches(this.distanceValueSource, BATCH_SIZE);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POI_COUNT)
+    public double corridorDistanceHaversine() throws IOException {
+        return this.index.evaluate(this.haversineDistanceValueSource);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POI_COUNT)
+    public double corridorDistanceHaversineBatch() throws IOException {
+        return this.index.evaluateBatches(this.haversineDistanceValueSource, BATCH_SIZE);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POI_COUNT)
+    public double corridorPosition() throws IOException {
+        return this.index.evaluate(this.positionValueSource);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POI_COUNT)
+    public double corridorPositionBatch() throws IOException {
+        return this.index.evaluateBatches(this.positionValueSource, BATCH_SIZE);
+    }
+
+    /**
+     * The decision of {!corridor buffer=2}, stopping at the first segment within the buffer.
+     */
+    @Benchmark
+    @OperationsPerInvocation(POI_COUNT)
+    public double corridorWithin() throws IOException {
+        return this.index.evaluate(this.withinValueSource);
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        double[] route = Routes.createRandomWalk(this.vertices, 0);
+        this.index = BenchmarkIndex.createLocations(Routes.createPointsAround(route, POI_COUNT, 1));
+
+        LineString lineString = WktUtils.parseLineString(Routes.toWkt(route));
+        ValueSource locationValueSource = BenchmarkIndex.createLocationValueSource();
+
+        RouteDistanceValueSource distanceValueSource = new RouteDistanceValueSource(lineString, locationValueSource);
+        this.distanceValueSource = distanceValueSource;
+        this.haversineDistanceValueSource = distanceValueSource.withDistanceStrategy(DistanceStrategy.HAVERSINE);
+        this.positionValueSource = new RoutePositionValueSource(lineString, locationValueSource);
+        this.withinValueSource = distanceValueSource.within(BUFFER, 0);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        this.index.close();
+    }
+}
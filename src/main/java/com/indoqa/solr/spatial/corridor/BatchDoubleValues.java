@@ -0,0 +1,35 @@
+/*
+ * Licensed to the Indoqa Software Design und Beratung GmbH (Indoqa) under
+ * one or more contributor license agreements. See the NOTICE file distributed
+ * with this work for additional information regarding copyright ownership.
+ * Indoqa licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.indoqa.solr.spatial.corridor;
+
+import java.io.IOException;
+
+import org.apache.lucene.queries.function.FunctionValues;
+
+/**
+ * Implemented by {@link FunctionValues} that calculate the values of a block of documents cheaper than one document at a time.
+ */
+public interface BatchDoubleValues {
+
+    /**
+     * Calculates the same values as {@link FunctionValues#doubleVal(int)} for the first <code>count</code> documents.
+     *
+     * @param docIds ascending document ids of the segment of these function values.
+     * @param values receives the value of <code>docIds[i]</code> at index <code>i</code>.
+     */
+    void doubleVals(int[] docIds, int count, double[] values) throws IOException;
+}
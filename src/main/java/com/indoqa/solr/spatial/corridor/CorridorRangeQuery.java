@@ -0,0 +1,452 @@
+/*
+ * Licensed to the Indoqa Software Design und Beratung GmbH (Indoqa) under
+ * one or more contributor license agreements. See the NOTICE file distributed
+ * with this work for additional information regarding copyright ownership.
+ * Indoqa licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.indoqa.solr.spatial.corridor;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.ReaderUtil;
+import org.apache.lucene.queries.function.FunctionValues;
+import org.apache.lucene.queries.function.ValueSource;
+import org.apache.lucene.search.ConstantScoreScorer;
+import org.apache.lucene.search.ConstantScoreWeight;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreMode;
+import org.apache.lucene.search.Scorer;
+import org.apache.lucene.search.TwoPhaseIterator;
+import org.apache.lucene.search.Weight;
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.BitSetIterator;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.FixedBitSet;
+import org.apache.lucene.util.ThreadInterruptedException;
+
+/**
+ * Matches all documents whose value of a {@link ValueSource} is within [lowerBound, upperBound]. The value is only computed for
+ * documents matching the (cheap) approximation query, which must match a superset of the documents within the range.
+ * <p>
+ * Optionally the value source only approximates the exact value within a relative error. Then the exact value source is only
+ * evaluated for documents whose approximated value is too close to the bounds to decide.
+ * <p>
+ * With an executor (see {@link #withExecutor(ExecutorService, int)}) all segments are evaluated concurrently when the first
+ * segment is scored. The approximation is evaluated once per segment, its documents are split into tasks of about
+ * <code>docsPerTask</code> documents and segments without any are skipped. Every task reads its own
+ * {@link FunctionValues}, so the value sources must only read the shared context in {@link ValueSource#getValues(Map,
+ * LeafReaderContext)}, which all value sources of this plugin do. Tasks calculate the values of {@link BatchDoubleValues} in
+ * blocks of up to {@value #BATCH_SIZE} documents.
+ */
+public class CorridorRangeQuery extends Query {
+
+    private static final float MATCH_COST = 1000;
+    private static final int DOCS_PER_WORD = 64;
+    private static final int BATCH_SIZE = 256;
+
+    private final Query approximation;
+    private final ValueSource valueSource;
+    private final double lowerBound;
+    private final double upperBound;
+    private final ValueSource exactValueSource;
+    private final double relativeError;
+    private final ExecutorService executor;
+    private final int docsPerTask;
+
+    public CorridorRangeQuery(Query approximation, ValueSource valueSource, double lowerBound, double upperBound) {
+        this(approximation, valueSource, lowerBound, upperBound, null, 0);
+    }
+
+    /**
+     * @param valueSource approximates <code>exactValueSource</code> with at most <code>relativeError</code> (e.g. 0.01 for 1%).
+     */
+    public CorridorRangeQuery(Query approximation, ValueSource valueSource, double lowerBound, double upperBound,
+            ValueSource exactValueSource, double relativeError) {
+        this(approximation, valueSource, lowerBound, upperBound, exactValueSource, relativeError, null, 0);
+    }
+
+    private CorridorRangeQuery(Query approximation, ValueSource valueSource, double lowerBound, double upperBound,
+            ValueSource exactValueSource, double relativeError, ExecutorService executor, int docsPerTask) {
+        this.approximation = approximation;
+        this.valueSource = valueSource;
+        this.lowerBound = lowerBound;
+        this.upperBound = upperBound;
+        this.exactValueSource = exactValueSource;
+        this.relativeError = relativeError;
+        this.executor = executor;
+        this.docsPerTask = docsPerTask;
+    }
+
+    @Override
+    public Weight createWeight(IndexSearcher searcher, ScoreMode scoreMode, float boost) throws IOException {
+        Weight approximationWeight = searcher.createWeight(this.approximation, ScoreMode.COMPLETE_NO_SCORES, 1f);
+
+        Map<?, ?> context = ValueSource.newContext(searcher);
+        this.valueSource.createWeight(context, searcher);
+        if (this.exactValueSource != null) {
+            this.exactValueSource.createWeight(context, searcher);
+        }
+
+        if (this.executor != null) {
+            return new ParallelCorridorRangeWeight(boost, scoreMode, approximationWeight, context);
+        }
+
+        return new CorridorRangeWeight(boost, scoreMode, approximationWeight, context);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!this.sameClassAs(o)) {
+            return false;
+        }
+
+        CorridorRangeQuery other = (CorridorRangeQuery) o;
+        return Double.compare(this.lowerBound, other.lowerBound) == 0
+            && Double.compare(this.upperBound, other.upperBound) == 0
+            && Double.compare(this.relativeError, other.relativeError) == 0
+            && Objects.equals(this.approximation, other.approximation)
+            && Objects.equals(this.valueSource, other.valueSource)
+            && Objects.equals(this.exactValueSource, other.exactValueSource);
+    }
+
+    public Query getApproximation() {
+        return this.approximation;
+    }
+
+    public ValueSource getExactValueSource() {
+        return this.exactValueSource;
+    }
+
+    public double getLowerBound() {
+        return this.lowerBound;
+    }
+
+    public double getRelativeError() {
+        return this.relativeError;
+    }
+
+    public int getDocsPerTask() {
+        return this.docsPerTask;
+    }
+
+    public ExecutorService getExecutor() {
+        return this.executor;
+    }
+
+    public double getUpperBound() {
+        return this.upperBound;
+    }
+
+    public ValueSource getValueSource() {
+        return this.valueSource;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(this.classHash(), this.approximation, this.valueSource, this.lowerBound, this.upperBound,
+            this.exactValueSource, this.relativeError);
+    }
+
+    @Override
+    public Query rewrite(IndexReader reader) throws IOException {
+        Query rewrittenApproximation = this.approximation.rewrite(reader);
+
+        if (rewrittenApproximation != this.approximation) {
+            return new CorridorRangeQuery(rewrittenApproximation, this.valueSource, this.lowerBound, this.upperBound,
+                this.exactValueSource, this.relativeError, this.executor, this.docsPerTask);
+        }
+
+        return super.rewrite(reader);
+    }
+
+    @Override
+    public String toString(String field) {
+        return "corridorRange(" + this.valueSource.description() + ":[" + this.lowerBound + " TO " + this.upperBound + "], "
+            + this.approximation.toString(field) + ")";
+    }
+
+    /**
+     * @return the same query, evaluating all segments concurrently on the executor (the results are the same, so the executor
+     * is not part of {@link #equals(Object)}).
+     */
+    public CorridorRangeQuery withExecutor(ExecutorService executorService, int maxDocsPerTask) {
+        // a task covers at least one word of the bit set
+        int alignedDocsPerTask = Math.max(DOCS_PER_WORD, (maxDocsPerTask + DOCS_PER_WORD - 1) / DOCS_PER_WORD * DOCS_PER_WORD);
+        return new CorridorRangeQuery(this.approximation, this.valueSource, this.lowerBound, this.upperBound,
+            this.exactValueSource, this.relativeError, executorService, alignedDocsPerTask);
+    }
+
+    /**
+     * @return the end (exclusive) of the task starting before <code>end</code>, moved behind all candidates in the same word of
+     * the bit set as the last one, so concurrent tasks never set bits of the same word.
+     */
+    private static int getTaskEnd(int[] candidates, int end) {
+        if (end >= candidates.length) {
+            return candidates.length;
+        }
+
+        int lastWord = candidates[end - 1] / DOCS_PER_WORD;
+        int result = end;
+        while (result < candidates.length && candidates[result] / DOCS_PER_WORD == lastWord) {
+            result++;
+        }
+        return result;
+    }
+
+    protected boolean matches(double value) {
+        return value >= this.lowerBound && value <= this.upperBound;
+    }
+
+    private boolean matches(int docId, FunctionValues values, FunctionValues exactValues) throws IOException {
+        return this.matches(docId, values.doubleVal(docId), exactValues);
+    }
+
+    private boolean matches(int docId, double value, FunctionValues exactValues) throws IOException {
+        if (exactValues == null) {
+            return this.matches(value);
+        }
+
+        // the exact value is within [value / (1 + relativeError), value / (1 - relativeError)]
+        double tolerance = Math.abs(value) * this.relativeError / (1 - this.relativeError);
+        if (value - tolerance >= this.lowerBound && value + tolerance <= this.upperBound) {
+            return true;
+        }
+
+        if (value + tolerance < this.lowerBound || value - tolerance > this.upperBound) {
+            return false;
+        }
+
+        return this.matches(exactValues.doubleVal(docId));
+    }
+
+    private final class CorridorRangeWeight extends ConstantScoreWeight {
+
+        private final ScoreMode scoreMode;
+        private final Weight approximationWeight;
+        private final Map<?, ?> valueSourceContext;
+
+        private CorridorRangeWeight(float boost, ScoreMode scoreMode, Weight approximationWeight, Map<?, ?> valueSourceContext) {
+            super(CorridorRangeQuery.this, boost);
+
+            this.scoreMode = scoreMode;
+            this.approximationWeight = approximationWeight;
+            this.valueSourceContext = valueSourceContext;
+        }
+
+        @Override
+        public boolean isCacheable(LeafReaderContext context) {
+            return false;
+        }
+
+        @Override
+        public Scorer scorer(LeafReaderContext context) throws IOException {
+            Scorer approximationScorer = this.approximationWeight.scorer(context);
+            if (approximationScorer == null) {
+                return null;
+            }
+
+            TwoPhaseIterator approximationTwoPhase = approximationScorer.twoPhaseIterator();
+            DocIdSetIterator approximationIterator =
+                approximationTwoPhase == null ? approximationScorer.iterator() : approximationTwoPhase.approximation();
+            FunctionValues values = CorridorRangeQuery.this.valueSource.getValues(this.valueSourceContext, context);
+            FunctionValues exactValues = CorridorRangeQuery.this.exactValueSource == null ? null
+                : CorridorRangeQuery.this.exactValueSource.getValues(this.valueSourceContext, context);
+
+            TwoPhaseIterator twoPhaseIterator = new TwoPhaseIterator(approximationIterator) {
+
+                @Override
+                public boolean matches() throws IOException {
+                    if (approximationTwoPhase != null && !approximationTwoPhase.matches()) {
+                        return false;
+                    }
+
+                    return CorridorRangeQuery.this.matches(this.approximation.docID(), values, exactValues);
+                }
+
+                @Override
+                public float matchCost() {
+                    return MATCH_COST;
+                }
+            };
+
+            return new ConstantScoreScorer(this, this.score(), this.scoreMode, twoPhaseIterator);
+        }
+    }
+
+    private final class ParallelCorridorRangeWeight extends ConstantScoreWeight {
+
+        private final ScoreMode scoreMode;
+        private final Weight approximationWeight;
+        private final Map<?, ?> valueSourceContext;
+
+        private FixedBitSet[] matchingDocs;
+
+        private ParallelCorridorRangeWeight(float boost, ScoreMode scoreMode, Weight approximationWeight,
+                Map<?, ?> valueSourceContext) {
+            super(CorridorRangeQuery.this, boost);
+
+            this.scoreMode = scoreMode;
+            this.approximationWeight = approximationWeight;
+            this.valueSourceContext = valueSourceContext;
+        }
+
+        @Override
+        public boolean isCacheable(LeafReaderContext context) {
+            return false;
+        }
+
+        @Override
+        public Scorer scorer(LeafReaderContext context) throws IOException {
+            FixedBitSet bitSet = this.getMatchingDocs(ReaderUtil.getTopLevelContext(context).leaves())[context.ord];
+            if (bitSet == null) {
+                return null;
+            }
+
+            DocIdSetIterator iterator = new BitSetIterator(bitSet, bitSet.cardinality());
+            return new ConstantScoreScorer(this, this.score(), this.scoreMode, iterator);
+        }
+
+        private void evaluate(LeafReaderContext context, int[] candidates, int from, int to, FixedBitSet bitSet)
+                throws IOException {
+            FunctionValues values = CorridorRangeQuery.this.valueSource.getValues(this.valueSourceContext, context);
+            FunctionValues exactValues = CorridorRangeQuery.this.exactValueSource == null ? null
+                : CorridorRangeQuery.this.exactValueSource.getValues(this.valueSourceContext, context);
+
+            if (!(values instanceof BatchDoubleValues)) {
+                for (int i = from; i < to; i++) {
+                    if (CorridorRangeQuery.this.matches(candidates[i], values, exactValues)) {
+                        bitSet.set(candidates[i]);
+                    }
+                }
+                return;
+            }
+
+            int[] docIds = new int[Math.min(BATCH_SIZE, to - from)];
+            double[] batch = new double[docIds.length];
+            for (int i = from; i < to; i += docIds.length) {
+                int count = Math.min(docIds.length, to - i);
+                System.arraycopy(candidates, i, docIds, 0, count);
+                this.evaluate((BatchDoubleValues) values, docIds, count, batch, exactValues, bitSet);
+            }
+        }
+
+        private void evaluate(BatchDoubleValues values, int[] docIds, int count, double[] batch, FunctionValues exactValues,
+                FixedBitSet bitSet) throws IOException {
+            values.doubleVals(docIds, count, batch);
+
+            for (int i = 0; i < count; i++) {
+                if (CorridorRangeQuery.this.matches(docIds[i], batch[i], exactValues)) {
+                    bitSet.set(docIds[i]);
+                }
+            }
+        }
+
+        /**
+         * @return the live documents of the segment matching the approximation, in increasing order. The approximation is
+         * evaluated once per segment, the tasks only split its documents.
+         */
+        private int[] getCandidates(LeafReaderContext context) throws IOException {
+            Scorer approximationScorer = this.approximationWeight.scorer(context);
+            if (approximationScorer == null) {
+                return new int[0];
+            }
+
+            TwoPhaseIterator approximationTwoPhase = approximationScorer.twoPhaseIterator();
+            DocIdSetIterator approximationIterator =
+                approximationTwoPhase == null ? approximationScorer.iterator() : approximationTwoPhase.approximation();
+            Bits liveDocs = context.reader().getLiveDocs();
+            int[] result = new int[(int) Math.min(approximationIterator.cost(), context.reader().maxDoc())];
+            int count = 0;
+
+            for (int docId = approximationIterator.nextDoc(); docId != DocIdSetIterator.NO_MORE_DOCS;
+                    docId = approximationIterator.nextDoc()) {
+                if (liveDocs != null && !liveDocs.get(docId)) {
+                    continue;
+                }
+
+                if (approximationTwoPhase != null && !approximationTwoPhase.matches()) {
+                    continue;
+                }
+
+                result = ArrayUtil.grow(result, count + 1);
+                result[count++] = docId;
+            }
+
+            return ArrayUtil.copyOfSubArray(result, 0, count);
+        }
+
+        private synchronized FixedBitSet[] getMatchingDocs(List<LeafReaderContext> leaves) throws IOException {
+            if (this.matchingDocs != null) {
+                return this.matchingDocs;
+            }
+
+            FixedBitSet[] result = new FixedBitSet[leaves.size()];
+            List<Future<Void>> futures = new ArrayList<>();
+
+            for (LeafReaderContext leaf : leaves) {
+                int maxDoc = leaf.reader().maxDoc();
+                if (maxDoc == 0) {
+                    continue;
+                }
+
+                int[] candidates = this.getCandidates(leaf);
+                if (candidates.length == 0) {
+                    continue;
+                }
+
+                FixedBitSet bitSet = new FixedBitSet(maxDoc);
+                result[leaf.ord] = bitSet;
+
+                int from = 0;
+                while (from < candidates.length) {
+                    int taskFrom = from;
+                    int taskTo = getTaskEnd(candidates, from + CorridorRangeQuery.this.docsPerTask);
+                    futures.add(CorridorRangeQuery.this.executor.submit(() -> {
+                        this.evaluate(leaf, candidates, taskFrom, taskTo, bitSet);
+                        return null;
+                    }));
+                    from = taskTo;
+                }
+            }
+
+            try {
+                for (Future<Void> future : futures) {
+                    future.get();
+                }
+            } catch (InterruptedException e) {
+                futures.forEach(future -> future.cancel(true));
+                throw new ThreadInterruptedException(e);
+            } catch (ExecutionException e) {
+                futures.forEach(future -> future.cancel(true));
+                if (e.getCause() instanceof IOException) {
+                    throw (IOException) e.getCause();
+                }
+                throw new IllegalStateException("Could not evaluate the corridor range.", e.getCause());
+            }
+
+            this.matchingDocs = result;
+            return result;
+        }
+    }
+}
@@ -16,16 +16,20 @@
  */
 package com.indoqa.solr.spatial.corridor;
 
+import org.locationtech.jts.geom.LineString;
+
 public class HashGeometry {
 
-    private String hash;
+    private long hash;
     private String geometry;
+    private int geometryVertexCount;
+    private LineString lineString;
 
-    public String getHash() {
+    public long getHash() {
         return hash;
     }
 
-    public void setHash(String hash) {
+    public void setHash(long hash) {
         this.hash = hash;
     }
 
@@ -36,4 +40,20 @@ public class HashGeometry {
     public void setGeometry(String geometry) {
         this.geometry = geometry;
     }
+
+    public int getGeometryVertexCount() {
+        return geometryVertexCount;
+    }
+
+    public void setGeometryVertexCount(int geometryVertexCount) {
+        this.geometryVertexCount = geometryVertexCount;
+    }
+
+    public LineString getLineString() {
+        return lineString;
+    }
+
+    public void setLineString(LineString lineString) {
+        this.lineString = lineString;
+    }
 }
@@ -0,0 +1,194 @@
+/*
+ * Licensed to the Indoqa Software Design und Beratung GmbH (Indoqa) under
+ * one or more contributor license agreements. See the NOTICE file distributed
+ * with this work for additional information regarding copyright ownership.
+ * Indoqa licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.indoqa.solr.spatial.corridor;
+
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.util.function.Function;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.locationtech.jts.geom.CoordinateSequence;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.geom.impl.PackedCoordinateSequence;
+
+/**
+ * A cache of routes bounded by their estimated size in bytes instead of their number, as the size of routes differs by orders
+ * of magnitude.
+ * <p>
+ * Optionally, routes evicted from the heap are moved to an off-heap tier, which stores their coordinates as packed doubles in
+ * direct buffers (limited by <code>-XX:MaxDirectMemorySize</code>). A route found in the off-heap tier is copied back to the
+ * heap.
+ */
+public final class LineStringCache {
+
+    private static final GeometryFactory GEOMETRY_FACTORY = new GeometryFactory();
+
+    // the LineString, its coordinate sequence, the coordinate array and the envelope
+    private static final int LINESTRING_OVERHEAD_BYTES = 160;
+    private static final int BYTES_PER_COORDINATE = 2 * Double.BYTES;
+    private static final int BYTES_PER_MEGABYTE = 1024 * 1024;
+
+    private final Cache<Long, LineString> heapCache;
+    private final Cache<Long, DoubleBuffer> offHeapCache;
+
+    /**
+     * @param offHeapBytes the size of the off-heap tier, 0 to disable it.
+     */
+    public LineStringCache(long heapBytes, long offHeapBytes) {
+        if (offHeapBytes > 0) {
+            this.offHeapCache = Caffeine.newBuilder()
+                .maximumWeight(offHeapBytes)
+                .weigher((Long key, DoubleBuffer value) -> value.capacity() * Double.BYTES)
+                .executor(Runnable::run)
+                .build();
+        } else {
+            this.offHeapCache = null;
+        }
+
+        this.heapCache = Caffeine.newBuilder()
+            .maximumWeight(heapBytes)
+            .weigher((Long key, LineString value) -> weigh(value))
+            .removalListener(this::onRemoval)
+            .executor(Runnable::run)
+            .recordStats()
+            .build();
+    }
+
+    /**
+     * @return the cache sized by the system properties <code>&lt;prefix&gt;.heapMB</code> and
+     * <code>&lt;prefix&gt;.offHeapMB</code>.
+     */
+    public static LineStringCache fromSystemProperties(String prefix, long defaultHeapMB) {
+        long heapMB = Long.getLong(prefix + ".heapMB", defaultHeapMB);
+        long offHeapMB = Long.getLong(prefix + ".offHeapMB", 0);
+        return new LineStringCache(heapMB * BYTES_PER_MEGABYTE, offHeapMB * BYTES_PER_MEGABYTE);
+    }
+
+    /**
+     * @return the estimated heap size of the route in bytes.
+     */
+    public static int weigh(LineString lineString) {
+        if (lineString == null) {
+            return LINESTRING_OVERHEAD_BYTES;
+        }
+
+        return LINESTRING_OVERHEAD_BYTES + lineString.getNumPoints() * BYTES_PER_COORDINATE;
+    }
+
+    private static DoubleBuffer toOffHeap(LineString lineString) {
+        CoordinateSequence coordinates = lineString.getCoordinateSequence();
+        DoubleBuffer result = ByteBuffer.allocateDirect(coordinates.size() * BYTES_PER_COORDINATE).asDoubleBuffer();
+
+        for (int i = 0; i < coordinates.size(); i++) {
+            result.put(coordinates.getX(i));
+            result.put(coordinates.getY(i));
+        }
+
+        return result;
+    }
+
+    private static LineString fromOffHeap(DoubleBuffer buffer) {
+        double[] coordinates = new double[buffer.capacity()];
+        DoubleBuffer source = buffer.duplicate();
+        source.rewind();
+        source.get(coordinates);
+        return GEOMETRY_FACTORY.createLineString(new PackedCoordinateSequence.Double(coordinates, 2, 0));
+    }
+
+    public LineString get(long key, Function<Long, LineString> loader) {
+        return this.heapCache.get(key, k -> {
+            LineString offHeap = this.removeFromOffHeap(k);
+            return offHeap != null ? offHeap : loader.apply(k);
+        });
+    }
+
+    public LineString getIfPresent(long key) {
+        LineString result = this.heapCache.getIfPresent(key);
+        if (result != null) {
+            return result;
+        }
+
+        LineString offHeap = this.removeFromOffHeap(key);
+        if (offHeap != null) {
+            this.heapCache.put(key, offHeap);
+        }
+        return offHeap;
+    }
+
+    public long getHeapBytes() {
+        return this.heapCache.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0)).orElse(0L);
+    }
+
+    public long getOffHeapBytes() {
+        if (this.offHeapCache == null) {
+            return 0;
+        }
+
+        return this.offHeapCache.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0)).orElse(0L);
+    }
+
+    public long getSize() {
+        return this.heapCache.estimatedSize();
+    }
+
+    /**
+     * @return the statistics of the heap tier, routes loaded from the off-heap tier count as misses.
+     */
+    public CacheStats getStats() {
+        return this.heapCache.stats();
+    }
+
+    public void invalidateAll() {
+        this.heapCache.invalidateAll();
+        this.heapCache.cleanUp();
+
+        if (this.offHeapCache != null) {
+            this.offHeapCache.invalidateAll();
+            this.offHeapCache.cleanUp();
+        }
+    }
+
+    public void put(long key, LineString lineString) {
+        this.heapCache.put(key, lineString);
+    }
+
+    private void onRemoval(Long key, LineString lineString, RemovalCause cause) {
+        if (cause != RemovalCause.SIZE || this.offHeapCache == null || key == null || lineString == null
+            || lineString.isEmpty()) {
+            return;
+        }
+
+        this.offHeapCache.put(key, toOffHeap(lineString));
+    }
+
+    private LineString removeFromOffHeap(long key) {
+        if (this.offHeapCache == null) {
+            return null;
+        }
+
+        DoubleBuffer buffer = this.offHeapCache.asMap().remove(key);
+        if (buffer == null) {
+            return null;
+        }
+
+        return fromOffHeap(buffer);
+    }
+}
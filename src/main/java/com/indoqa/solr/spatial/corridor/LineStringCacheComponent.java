@@ -0,0 +1,210 @@
+/*
+ * Licensed to the Indoqa Software Design und Beratung GmbH (Indoqa) under
+ * one or more contributor license agreements. See the NOTICE file distributed
+ * with this work for additional information regarding copyright ownership.
+ * Indoqa licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.indoqa.solr.spatial.corridor;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.apache.solr.common.MapWriter;
+import org.apache.solr.common.util.NamedList;
+import org.apache.solr.core.CloseHook;
+import org.apache.solr.core.SolrCore;
+import org.apache.solr.handler.component.ResponseBuilder;
+import org.apache.solr.handler.component.SearchComponent;
+import org.apache.solr.metrics.MetricsMap;
+import org.apache.solr.metrics.SolrMetricProducer;
+import org.apache.solr.metrics.SolrMetricsContext;
+import org.apache.solr.search.SolrIndexSearcher;
+import org.apache.solr.util.plugin.SolrCoreAware;
+
+/**
+ * Creates route caches for its core, instead of the static caches shared by all cores of the JVM. The component does not
+ * need to be added to any request handler:
+ *
+ * <pre>
+ * &lt;searchComponent name="corridorCache" class="com.indoqa.solr.spatial.corridor.LineStringCacheComponent"&gt;
+ *   &lt;long name="heapMB"&gt;256&lt;/long&gt;
+ *   &lt;long name="offHeapMB"&gt;0&lt;/long&gt;
+ *   &lt;long name="segmentHeapMB"&gt;256&lt;/long&gt;
+ *   &lt;long name="routeIndexHeapMB"&gt;64&lt;/long&gt;
+ * &lt;/searchComponent&gt;
+ * </pre>
+ *
+ * The caches are dropped when the core is closed (e.g. reloaded). Routes are cached by their hash, so they stay valid across
+ * commits, while the routes cached per segment are evicted as soon as their segment is closed.
+ */
+public class LineStringCacheComponent extends SearchComponent implements SolrCoreAware, SolrMetricProducer {
+
+    private static final Map<SolrCore, LineStringCacheComponent> CORE_COMPONENTS = new ConcurrentHashMap<>();
+    private static final long BYTES_PER_MEGABYTE = 1024 * 1024;
+
+    private long heapMB = 256;
+    private long offHeapMB;
+    private long segmentHeapMB = 256;
+    private long routeIndexHeapMB = 64;
+
+    private LineStringCache lineStringCache;
+    private SegmentLineStringCache segmentCache;
+    private RouteIndexCache routeIndexCache;
+    private SolrMetricsContext solrMetricsContext;
+
+    /**
+     * @return the component of the core, or <code>null</code> if the core has none.
+     */
+    public static LineStringCacheComponent forCore(SolrCore core) {
+        if (core == null) {
+            return null;
+        }
+
+        return CORE_COMPONENTS.get(core);
+    }
+
+    /**
+     * @return the component of the core of the searcher in the value source context, or <code>null</code>.
+     */
+    public static LineStringCacheComponent forContext(Map<?, ?> context) {
+        if (context == null || CORE_COMPONENTS.isEmpty()) {
+            return null;
+        }
+
+        Object searcher = context.get("searcher");
+        if (searcher instanceof SolrIndexSearcher) {
+            return forCore(((SolrIndexSearcher) searcher).getCore());
+        }
+
+        return null;
+    }
+
+    static void purgeAll() {
+        for (LineStringCacheComponent component : CORE_COMPONENTS.values()) {
+            component.invalidateAll();
+        }
+    }
+
+    private static void addStats(MapWriter.EntryWriter writer, String prefix, CacheStats stats) throws IOException {
+        writer.put(prefix + "lookups", stats.requestCount());
+        writer.put(prefix + "hits", stats.hitCount());
+        writer.put(prefix + "hitratio", stats.hitRate());
+        writer.put(prefix + "evictions", stats.evictionCount());
+    }
+
+    @SuppressWarnings("rawtypes")
+    private static long getLong(NamedList args, String name, long defaultValue) {
+        Object value = args == null ? null : args.get(name);
+        return value == null ? defaultValue : Long.parseLong(value.toString());
+    }
+
+    @Override
+    public String getDescription() {
+        return "Per core caches of parsed corridor routes";
+    }
+
+    public LineStringCache getLineStringCache() {
+        return this.lineStringCache;
+    }
+
+    public RouteIndexCache getRouteIndexCache() {
+        return this.routeIndexCache;
+    }
+
+    public SegmentLineStringCache getSegmentCache() {
+        return this.segmentCache;
+    }
+
+    @Override
+    public SolrMetricsContext getSolrMetricsContext() {
+        return this.solrMetricsContext;
+    }
+
+    @Override
+    public Category getCategory() {
+        return Category.CACHE;
+    }
+
+    @Override
+    public void inform(SolrCore core) {
+        CORE_COMPONENTS.put(core, this);
+
+        core.addCloseHook(new CloseHook() {
+
+            @Override
+            public void postClose(SolrCore closedCore) {
+                // nothing to do
+            }
+
+            @Override
+            public void preClose(SolrCore closingCore) {
+                CORE_COMPONENTS.remove(closingCore, LineStringCacheComponent.this);
+                LineStringCacheComponent.this.invalidateAll();
+            }
+        });
+    }
+
+    @SuppressWarnings("rawtypes")
+    @Override
+    public void init(NamedList args) {
+        super.init(args);
+
+        this.heapMB = getLong(args, "heapMB", this.heapMB);
+        this.offHeapMB = getLong(args, "offHeapMB", this.offHeapMB);
+        this.segmentHeapMB = getLong(args, "segmentHeapMB", this.segmentHeapMB);
+        this.routeIndexHeapMB = getLong(args, "routeIndexHeapMB", this.routeIndexHeapMB);
+
+        this.lineStringCache = new LineStringCache(this.heapMB * BYTES_PER_MEGABYTE, this.offHeapMB * BYTES_PER_MEGABYTE);
+        this.segmentCache = new SegmentLineStringCache(this.segmentHeapMB * BYTES_PER_MEGABYTE, this.lineStringCache);
+        this.routeIndexCache = new RouteIndexCache(this.routeIndexHeapMB * BYTES_PER_MEGABYTE);
+    }
+
+    @Override
+    public void initializeMetrics(SolrMetricsContext parentContext, String scope) {
+        this.solrMetricsContext = parentContext.getChildContext(this);
+
+        MetricsMap metricsMap = new MetricsMap(writer -> {
+            writer.put("size", this.lineStringCache.getSize());
+            writer.put("heapBytes", this.lineStringCache.getHeapBytes());
+            writer.put("offHeapBytes", this.lineStringCache.getOffHeapBytes());
+            addStats(writer, "", this.lineStringCache.getStats());
+
+            writer.put("segment.size", this.segmentCache.getSize());
+            writer.put("segment.heapBytes", this.segmentCache.getHeapBytes());
+            addStats(writer, "segment.", this.segmentCache.getStats());
+
+            writer.put("routeIndex.size", this.routeIndexCache.getSize());
+            writer.put("routeIndex.heapBytes", this.routeIndexCache.getHeapBytes());
+            addStats(writer, "routeIndex.", this.routeIndexCache.getStats());
+        });
+        this.solrMetricsContext.gauge(this, metricsMap, true, scope, this.getCategory().toString());
+    }
+
+    @Override
+    public void prepare(ResponseBuilder rb) {
+        // nothing to do
+    }
+
+    @Override
+    public void process(ResponseBuilder rb) {
+        // nothing to do
+    }
+
+    private void invalidateAll() {
+        this.lineStringCache.invalidateAll();
+        this.segmentCache.invalidateAll();
+        this.routeIndexCache.invalidateAll();
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * Licensed to the Indoqa Software Design und Beratung GmbH (Indoqa) under
+ * one or more contributor license agreements. See the NOTICE file distributed
+ * with this work for additional information regarding copyright ownership.
+ * Indoqa licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.indoqa.solr.spatial.corridor;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import com.indoqa.solr.spatial.corridor.binary.BinaryLineStringField;
+import com.indoqa.solr.spatial.corridor.binary.RouteGeometryField;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.queries.function.FunctionValues;
+import org.apache.lucene.queries.function.ValueSource;
+import org.apache.lucene.util.Bits;
+import org.apache.solr.common.util.NamedList;
+import org.apache.solr.common.util.SolrNamedThreadFactory;
+import org.apache.solr.core.SolrEventListener;
+import org.apache.solr.schema.SchemaField;
+import org.apache.solr.search.SolrIndexSearcher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Warms the route caches of a new searcher with the routes of all documents in segments that were not cached yet, before the
+ * searcher serves queries. The segments are warmed concurrently:
+ *
+ * <pre>
+ * &lt;listener event="newSearcher" class="com.indoqa.solr.spatial.corridor.LineStringCacheWarmer"&gt;
+ *   &lt;str name="routeField"&gt;geo&lt;/str&gt;
+ *   &lt;str name="routeHashField"&gt;geoHash&lt;/str&gt;
+ *   &lt;int name="threads"&gt;4&lt;/int&gt;
+ * &lt;/listener&gt;
+ * </pre>
+ *
+ * The route field is either a stored WKT field (parsed and cached by the hash of <code>routeHashField</code>, if configured) or
+ * a {@link BinaryLineStringField}. Routes in a {@link RouteGeometryField} are read in place and never cached, so there is
+ * nothing to warm and the listener does nothing.
+ */
+public class LineStringCacheWarmer implements SolrEventListener {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LineStringCacheWarmer.class);
+
+    private static final long THREAD_KEEP_ALIVE_SECONDS = 60;
+
+    private String routeFieldName;
+    private String routeHashFieldName;
+    private ExecutorService executor;
+
+    private static int warm(SegmentLineStringCache segmentCache, Map<?, ?> context, ValueSource routeValueSource,
+            ValueSource routeHashValueSource, LeafReaderContext leaf) throws IOException {
+        FunctionValues hashValues = routeHashValueSource == null ? new NoHashFunctionValues()
+            : routeHashValueSource.getValues(context, leaf);
+        FunctionValues routeValues =
+            segmentCache.cached(routeValueSource, routeValueSource.getValues(context, leaf), hashValues, leaf);
+        Bits liveDocs = leaf.reader().getLiveDocs();
+
+        int result = 0;
+        for (int docId = 0; docId < leaf.reader().maxDoc(); docId++) {
+            if (liveDocs != null && !liveDocs.get(docId)) {
+                continue;
+            }
+
+            if (routeValues.objectVal(docId) != null) {
+                result++;
+            }
+        }
+        return result;
+    }
+
+    @SuppressWarnings("rawtypes")
+    @Override
+    public void init(NamedList args) {
+        this.routeFieldName = (String) args.get("routeField");
+        this.routeHashFieldName = (String) args.get("routeHashField");
+
+        if (this.routeFieldName == null) {
+            throw new IllegalArgumentException("The init parameter 'routeField' is required.");
+        }
+
+        Object threadsArg = args.get("threads");
+        int threads = threadsArg == null ? Runtime.getRuntime().availableProcessors() : Integer.parseInt(threadsArg.toString());
+
+        // idle threads terminate, so the pool of a closed core does not keep any threads
+        ThreadPoolExecutor threadPoolExecutor = new ThreadPoolExecutor(threads, threads, THREAD_KEEP_ALIVE_SECONDS,
+            TimeUnit.SECONDS, new LinkedBlockingQueue<>(), new SolrNamedThreadFactory("corridorCacheWarmer"));
+        threadPoolExecutor.allowCoreThreadTimeOut(true);
+        this.executor = threadPoolExecutor;
+    }
+
+    @Override
+    public void newSearcher(SolrIndexSearcher newSearcher, SolrIndexSearcher currentSearcher) {
+        if (newSearcher.getSchema().getField(this.routeFieldName).getType() instanceof RouteGeometryField) {
+            LOGGER.info("Skipped warming the route caches, the routes of a RouteGeometryField are not cached. | routeField={}",
+                this.routeFieldName);
+            return;
+        }
+
+        long start = System.nanoTime();
+
+        Map<?, ?> context = ValueSource.newContext(newSearcher);
+        SegmentLineStringCache segmentCache = SegmentLineStringCache.forContext(context);
+        ValueSource routeValueSource = this.getRouteValueSource(newSearcher);
+        ValueSource routeHashValueSource = this.getRouteHashValueSource(newSearcher);
+
+        List<Future<Integer>> futures = new ArrayList<>();
+        for (LeafReaderContext leaf : newSearcher.getIndexReader().leaves()) {
+            if (segmentCache.isCached(leaf)) {
+                continue;
+            }
+
+            futures.add(this.executor.submit(() -> warm(segmentCache, context, routeValueSource, routeHashValueSource, leaf)));
+        }
+
+        int routes = 0;
+        try {
+            for (Future<Integer> future : futures) {
+                routes += future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOGGER.warn("Interrupted while warming the route caches.");
+            return;
+        } catch (ExecutionException e) {
+            LOGGER.error("Could not warm the route caches. | routeField={}", this.routeFieldName, e.getCause());
+            return;
+        }
+
+        LOGGER.info("Warmed the route caches. | routeField={}, segments={}, routes={}, timeMillis={}", this.routeFieldName,
+            futures.size(), routes, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    @Override
+    public void postCommit() {
+        // nothing to do
+    }
+
+    @Override
+    public void postSoftCommit() {
+        // nothing to do
+    }
+
+    private ValueSource getRouteHashValueSource(SolrIndexSearcher searcher) {
+        if (this.routeHashFieldName == null) {
+            return null;
+        }
+
+        SchemaField routeHashField = searcher.getSchema().getField(this.routeHashFieldName);
+        return routeHashField.getType().getValueSource(routeHashField, null);
+    }
+
+    private ValueSource getRouteValueSource(SolrIndexSearcher searcher) {
+        SchemaField routeField = searcher.getSchema().getField(this.routeFieldName);
+
+        if (routeField.getType() instanceof BinaryLineStringField) {
+            return routeField.getType().getValueSource(routeField, null);
+        }
+
+        return new LineStringValueSource(this.routeFieldName);
+    }
+
+    private static final class NoHashFunctionValues extends FunctionValues {
+
+        @Override
+        public Object objectVal(int doc) {
+            return null;
+        }
+
+        @Override
+        public String toString(int doc) {
+            return null;
+        }
+    }
+}
@@ -38,6 +38,11 @@ public class LineStringFunctionValues extends FunctionValues {
         this.readerContext = readerContext;
     }
 
+    @Override
+    public Object objectVal(int doc) {
+        return this.strVal(doc);
+    }
+
     @Override
     public String strVal(int doc) {
         return this.toString(doc);
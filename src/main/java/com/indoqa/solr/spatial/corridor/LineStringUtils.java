@@ -16,79 +16,215 @@
  */
 package com.indoqa.solr.spatial.corridor;
 
-import com.github.benmanes.caffeine.cache.Cache;
-import com.github.benmanes.caffeine.cache.Caffeine;
-import com.github.benmanes.caffeine.cache.CaffeineSpec;
-import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.indoqa.solr.spatial.corridor.geo.CorridorPolygonBuilder;
+import com.indoqa.solr.spatial.corridor.geo.IndexedRoute;
 import com.indoqa.solr.spatial.corridor.wkt.WktUtils;
 
+import org.apache.lucene.queries.function.FunctionValues;
+import org.locationtech.jts.geom.Geometry;
 import org.locationtech.jts.geom.LineString;
 import org.locationtech.jts.io.ParseException;
 import org.locationtech.jts.io.WKTReader;
-import org.apache.commons.codec.binary.Hex;
-import org.apache.commons.codec.digest.DigestUtils;
-
-import java.util.concurrent.TimeUnit;
+import org.apache.solr.common.util.Hash;
+import org.apache.solr.core.SolrCore;
+import org.apache.solr.request.SolrQueryRequest;
+import org.apache.solr.search.SolrCache;
+import org.apache.solr.search.SolrIndexSearcher;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
 
 public final class LineStringUtils {
 
-    static {
-        cache = Caffeine.newBuilder()
-                .maximumSize(100000)
-                .expireAfterAccess(24, TimeUnit.HOURS)
-                .build();
+    /**
+     * The name of the (optional) user cache in solrconfig.xml for parsed routes, keyed by {@link #calculateHash(String)}.
+     */
+    public static final String CACHE_NAME = "corridorLineStrings";
+
+    private static final String REQUEST_CONTEXT_KEY = LineStringUtils.class.getName() + ".routes";
+
+    /**
+     * Sized by the system properties <code>corridor.lineStringCache.heapMB</code> (default 256) and
+     * <code>corridor.lineStringCache.offHeapMB</code> (default 0, no off-heap tier).
+     */
+    private static final LineStringCache cache = LineStringCache.fromSystemProperties("corridor.lineStringCache", 256);
+
+    public static LineString parseOrGet(String value) {
+        return parseOrGet(value, null);
+    }
+
+    /**
+     * @param hash the hash of the route as calculated by {@link #calculateHash(String)} at index time, or <code>null</code> to
+     * calculate it now.
+     */
+    public static LineString parseOrGet(String value, Long hash)  {
+        return parseOrGet(value, hash, cache);
     }
 
-    private static Cache<String, LineString> cache;
+    /**
+     * @param lineStringCache the cache of a core, see {@link LineStringCacheComponent}.
+     */
+    public static LineString parseOrGet(String value, Long hash, LineStringCache lineStringCache) {
+        if (value == null) {
+            return null;
+        }
+
+        long key = hash != null ? hash : calculateHash(value);
+        return lineStringCache.get(key, k -> parseWktLinestring(value));
+    }
 
-    public static LineString parseOrGet(String value, String hash)  {
+    /**
+     * Parses each route once per request (e.g. for fq, sort and fl) and looks it up in the cache {@value #CACHE_NAME} of the
+     * searcher, or in the cache of the {@link LineStringCacheComponent} of the core, or in the static cache if neither is
+     * configured.
+     */
+    public static LineString parseOrGet(SolrQueryRequest request, String value) {
         if (value == null) {
             return null;
         }
 
-        if (hash != null) {
-            LineString cached = cache.getIfPresent(hash);
+        if (request == null) {
+            return parseOrGet(value);
+        }
+
+        @SuppressWarnings("unchecked")
+        Map<String, LineString> routes =
+            (Map<String, LineString>) request.getContext().computeIfAbsent(REQUEST_CONTEXT_KEY, key -> new HashMap<>());
+        return routes.computeIfAbsent(value, route -> parseOrGet(request.getSearcher(), route, null));
+    }
 
-            if (cached != null) {
-                return cached;
-            }
+    /**
+     * @param hash the hash of the route as calculated by {@link #calculateHash(String)} at index time, or <code>null</code> to
+     * calculate it now.
+     */
+    public static LineString parseOrGet(SolrIndexSearcher searcher, String value, Long hash) {
+        @SuppressWarnings("unchecked")
+        SolrCache<Long, LineString> solrCache = searcher == null ? null : searcher.getCache(CACHE_NAME);
+        if (solrCache == null || value == null) {
+            return parseOrGet(value, hash, getLineStringCache(searcher == null ? null : searcher.getCore()));
         }
 
-        String key = calculateHash(value);
-        return cache.get(key, s -> parseWktLinestring(value));
+        long key = hash != null ? hash : calculateHash(value);
+        try {
+            return solrCache.computeIfAbsent(key, k -> parseWktLinestring(value));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @return the route of the document, either decoded from binary doc values or parsed from WKT (cached by its hash), or
+     * <code>null</code> if the document has no route.
+     */
+    public static LineString getLineString(FunctionValues routeValues, FunctionValues hashValues, int docId) throws IOException {
+        return getLineString(routeValues, hashValues, docId, cache);
+    }
+
+    public static LineString getLineString(FunctionValues routeValues, FunctionValues hashValues, int docId,
+            LineStringCache lineStringCache) throws IOException {
+        return toLineString(routeValues.objectVal(docId), hashValues, docId, lineStringCache);
+    }
+
+    /**
+     * @return the route of the document for a value already read from the route values, see
+     * {@link #getLineString(FunctionValues, FunctionValues, int)}.
+     */
+    public static LineString toLineString(Object route, FunctionValues hashValues, int docId) throws IOException {
+        return toLineString(route, hashValues, docId, cache);
+    }
+
+    public static LineString toLineString(Object route, FunctionValues hashValues, int docId, LineStringCache lineStringCache)
+            throws IOException {
+        if (route instanceof LineString) {
+            return (LineString) route;
+        }
+
+        if (route instanceof IndexedRoute) {
+            return ((IndexedRoute) route).getLineString();
+        }
+
+        if (route == null || route.toString().isEmpty()) {
+            return null;
+        }
+
+        return parseOrGet(route.toString(), getHash(hashValues, docId), lineStringCache);
     }
 
     public static HashGeometry cacheLineStringGetHashGeometry(String linestring, int radiusInMeters){
+        return cacheLineStringGetHashGeometry(linestring, radiusInMeters, CorridorPolygonBuilder.DEFAULT);
+    }
+
+    public static HashGeometry cacheLineStringGetHashGeometry(String linestring, int radiusInMeters,
+            CorridorPolygonBuilder corridorPolygonBuilder) {
+        return cacheLineStringGetHashGeometry(linestring, radiusInMeters, corridorPolygonBuilder, cache);
+    }
+
+    /**
+     * @param lineStringCache the cache the parsed route is put into, see {@link #getLineStringCache(SolrCore)}.
+     */
+    public static HashGeometry cacheLineStringGetHashGeometry(String linestring, int radiusInMeters,
+            CorridorPolygonBuilder corridorPolygonBuilder, LineStringCache lineStringCache) {
         if(linestring == null){
             return null;
         }
-        String key = calculateHash(linestring);
+        long key = calculateHash(linestring);
         LineString parsedLineString = parseWktLinestring(linestring);
 
-        cache.put(key, parsedLineString);
+        lineStringCache.put(key, parsedLineString);
         HashGeometry result = new HashGeometry();
-        // meters /((PI/180)x6378137)
-        result.setGeometry(parsedLineString.buffer(radiusInMeters / (Math.PI / 180 * 6378137)).toText());
+        Geometry geometry = corridorPolygonBuilder.create(parsedLineString, radiusInMeters);
+        result.setGeometry(geometry.toText());
+        result.setGeometryVertexCount(geometry.getNumPoints());
         result.setHash(key);
+        result.setLineString(parsedLineString);
         return result;
     }
 
     public static void purgeCache() {
         cache.invalidateAll();
-        cache.cleanUp();
+        SegmentLineStringCache.purge();
+        RouteIndexCache.purge();
+        LineStringCacheComponent.purgeAll();
+    }
+
+    static LineStringCache getDefaultCache() {
+        return cache;
+    }
+
+    /**
+     * @return the route cache of the {@link LineStringCacheComponent} of the core, or the static cache if the core has none.
+     */
+    public static LineStringCache getLineStringCache(SolrCore core) {
+        LineStringCacheComponent component = LineStringCacheComponent.forCore(core);
+        return component == null ? cache : component.getLineStringCache();
     }
 
     private static LineString parseWktLinestring(String corridorLineString) {
         return WktUtils.parseLineString(corridorLineString);
     }
 
-    private static String calculateHash(String linestring) {
-        if (linestring == null) {
-            return null;
+    /**
+     * @return the 64 bit murmur3 hash of the WKT of a route
+     */
+    public static long calculateHash(String linestring) {
+        byte[] bytes = linestring.getBytes(StandardCharsets.UTF_8);
+
+        Hash.LongPair result = new Hash.LongPair();
+        Hash.murmurhash3_x64_128(bytes, 0, bytes.length, 0, result);
+        return result.val1;
+    }
+
+    private static Long getHash(FunctionValues hashValues, int docId) throws IOException {
+        Object hash = hashValues.objectVal(docId);
+
+        // hashes of other formats (e.g. in string fields of older indexes) are ignored and calculated again
+        if (hash instanceof Number) {
+            return ((Number) hash).longValue();
         }
 
-        StringBuilder result = new StringBuilder("hash-");
-        result.append(Hex.encodeHex(DigestUtils.md5(linestring)));
-        return result.toString();
+        return null;
     }
 }
@@ -19,9 +19,13 @@ package com.indoqa.solr.spatial.corridor;
 import java.io.IOException;
 import java.util.Map;
 
+import com.indoqa.solr.spatial.corridor.binary.BinaryLineStringField;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.queries.function.FunctionValues;
 import org.apache.lucene.queries.function.ValueSource;
+import org.apache.solr.schema.SchemaField;
+import org.apache.solr.search.FunctionQParser;
+import org.apache.solr.search.SyntaxError;
 
 public class LineStringValueSource extends ValueSource {
 
@@ -31,6 +35,21 @@ public class LineStringValueSource extends ValueSource {
         this.linestringFieldName = linestringFieldName;
     }
 
+    /**
+     * Parses the name of the route field and creates the matching value source: routes in a {@link BinaryLineStringField} (or
+     * its subclasses) are read from doc values, all others are read as WKT from stored fields.
+     */
+    public static ValueSource parse(FunctionQParser fp) throws SyntaxError {
+        String fieldName = fp.parseArg();
+
+        SchemaField field = fp.getReq().getSchema().getFieldOrNull(fieldName);
+        if (field != null && field.getType() instanceof BinaryLineStringField) {
+            return field.getType().getValueSource(field, fp);
+        }
+
+        return new LineStringValueSource(fieldName);
+    }
+
     @Override
     public String description() {
         return "retrieve raw linestring even for tokenized fields";
@@ -41,6 +60,10 @@ public class LineStringValueSource extends ValueSource {
         return false;
     }
 
+    public String getLinestringFieldName() {
+        return this.linestringFieldName;
+    }
+
     @SuppressWarnings("rawtypes")
     @Override
     public FunctionValues getValues(Map context, LeafReaderContext readerContext) throws IOException {
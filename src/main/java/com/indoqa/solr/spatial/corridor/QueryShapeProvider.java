@@ -0,0 +1,31 @@
+/*
+ * Licensed to the Indoqa Software Design und Beratung GmbH (Indoqa) under
+ * one or more contributor license agreements. See the NOTICE file distributed
+ * with this work for additional information regarding copyright ownership.
+ * Indoqa licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.indoqa.solr.spatial.corridor;
+
+import java.util.List;
+
+/**
+ * Implemented by value sources of stored routes that can only be in range for routes whose corridor polygon (see
+ * {@link com.indoqa.solr.spatial.corridor.processor.LinestringHashUpdateProcessorFactory}) intersects one of the query shapes.
+ */
+public interface QueryShapeProvider {
+
+    /**
+     * @return WKT shapes in WGS84 degrees.
+     */
+    List<String> getQueryShapes();
+}
@@ -0,0 +1,113 @@
+/*
+ * Licensed to the Indoqa Software Design und Beratung GmbH (Indoqa) under
+ * one or more contributor license agreements. See the NOTICE file distributed
+ * with this work for additional information regarding copyright ownership.
+ * Indoqa licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.indoqa.solr.spatial.corridor;
+
+import java.util.Map;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.indoqa.solr.spatial.corridor.geo.RouteIndex;
+import org.locationtech.jts.geom.LineString;
+
+/**
+ * Caches the {@link RouteIndex} (segment index and cumulative lengths) of stored routes. Keys are the {@link LineString}
+ * instances of the route caches, compared by identity. The index references its route, so each entry keeps its route alive
+ * until the entry itself is evicted: the cache is bounded by the estimated heap size of the routes and their indexes.
+ * <p>
+ * Each core with a {@link LineStringCacheComponent} has its own instance, all other cores share a static instance.
+ */
+public final class RouteIndexCache {
+
+    private static final int BYTES_PER_MEGABYTE = 1024 * 1024;
+
+    // sized by the system property corridor.routeIndexCache.heapMB (default 64)
+    private static final RouteIndexCache DEFAULT = new RouteIndexCache(
+        Long.getLong("corridor.routeIndexCache.heapMB", 64) * BYTES_PER_MEGABYTE);
+
+    private final Cache<RouteKey, RouteIndex> cache;
+
+    public RouteIndexCache(long heapBytes) {
+        this.cache = Caffeine.newBuilder()
+            .maximumWeight(heapBytes)
+            // the route kept alive by the entry plus its index: coordinates, cumulative lengths and bounding boxes are about
+            // twice the size of the route itself
+            .weigher((RouteKey key, RouteIndex value) -> 3 * LineStringCache.weigh(key.lineString))
+            .executor(Runnable::run)
+            .recordStats()
+            .build();
+    }
+
+    /**
+     * @return the cache of the core of the searcher in the value source context, or the static instance.
+     */
+    public static RouteIndexCache forContext(Map<?, ?> context) {
+        LineStringCacheComponent component = LineStringCacheComponent.forContext(context);
+        return component == null ? DEFAULT : component.getRouteIndexCache();
+    }
+
+    /**
+     * Purges the static instance.
+     */
+    public static void purge() {
+        DEFAULT.invalidateAll();
+    }
+
+    static long size() {
+        return DEFAULT.getSize();
+    }
+
+    public RouteIndex get(LineString lineString) {
+        return this.cache.get(new RouteKey(lineString), key -> new RouteIndex(key.lineString));
+    }
+
+    public long getHeapBytes() {
+        return this.cache.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0)).orElse(0L);
+    }
+
+    public CacheStats getStats() {
+        return this.cache.stats();
+    }
+
+    public long getSize() {
+        this.cache.cleanUp();
+        return this.cache.estimatedSize();
+    }
+
+    public void invalidateAll() {
+        this.cache.invalidateAll();
+    }
+
+    private static final class RouteKey {
+
+        private final LineString lineString;
+
+        public RouteKey(LineString lineString) {
+            this.lineString = lineString;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof RouteKey && ((RouteKey) obj).lineString == this.lineString;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(this.lineString);
+        }
+    }
+}
@@ -0,0 +1,261 @@
+/*
+ * Licensed to the Indoqa Software Design und Beratung GmbH (Indoqa) under
+ * one or more contributor license agreements. See the NOTICE file distributed
+ * with this work for additional information regarding copyright ownership.
+ * Indoqa licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.indoqa.solr.spatial.corridor;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.indoqa.solr.spatial.corridor.binary.BinaryLineStringValueSource;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.queries.function.FunctionValues;
+import org.apache.lucene.queries.function.ValueSource;
+import org.locationtech.jts.geom.LineString;
+
+/**
+ * Caches the decoded routes of documents by the core cache key of their segment and their docId. Repeated queries over the
+ * same segments neither load nor hash the stored route again. The entries of a segment are evicted as soon as the segment is
+ * closed, e.g. after it was merged away. The cache is bounded by the estimated heap size of the routes.
+ * <p>
+ * Each core with a {@link LineStringCacheComponent} has its own instance, all other cores share a static instance.
+ */
+public final class SegmentLineStringCache {
+
+    private static final int BYTES_PER_MEGABYTE = 1024 * 1024;
+
+    // sized by the system property corridor.segmentCache.heapMB (default 256)
+    private static final SegmentLineStringCache DEFAULT = new SegmentLineStringCache(
+        Long.getLong("corridor.segmentCache.heapMB", 256) * BYTES_PER_MEGABYTE, LineStringUtils.getDefaultCache());
+
+    private final Cache<SegmentDocKey, Optional<LineString>> cache;
+    // the keys of each segment, so closing a segment evicts its entries without scanning the cache
+    private final Map<IndexReader.CacheKey, Set<SegmentDocKey>> segmentKeys = new ConcurrentHashMap<>();
+    // segments with a closed listener, kept when the cache is purged so each segment is registered once
+    private final Set<IndexReader.CacheKey> registeredSegments = ConcurrentHashMap.newKeySet();
+    private final LineStringCache lineStringCache;
+
+    /**
+     * @param lineStringCache caches the routes parsed from WKT by their hash.
+     */
+    public SegmentLineStringCache(long heapBytes, LineStringCache lineStringCache) {
+        this.cache = Caffeine.newBuilder()
+            .maximumWeight(heapBytes)
+            .weigher((SegmentDocKey key, Optional<LineString> value) -> LineStringCache.weigh(value.orElse(null)))
+            .removalListener((SegmentDocKey key, Optional<LineString> value, RemovalCause cause) -> {
+                if (key != null && cause != RemovalCause.REPLACED) {
+                    this.removeSegmentKey(key);
+                }
+            })
+            .executor(Runnable::run)
+            .recordStats()
+            .build();
+        this.lineStringCache = lineStringCache;
+    }
+
+    /**
+     * @param context the value source context, whose searcher selects the cache of its core.
+     * @return function values returning the cached route as {@link FunctionValues#objectVal(int)}, or the given route values
+     * if the segment or the route value source does not support caching.
+     */
+    public static FunctionValues cached(Map<?, ?> context, ValueSource routeValueSource, FunctionValues routeValues,
+            FunctionValues hashValues, LeafReaderContext readerContext) {
+        return forContext(context).cached(routeValueSource, routeValues, hashValues, readerContext);
+    }
+
+    /**
+     * @return the cache of the core of the searcher in the value source context, or the static instance.
+     */
+    public static SegmentLineStringCache forContext(Map<?, ?> context) {
+        LineStringCacheComponent component = LineStringCacheComponent.forContext(context);
+        return component == null ? DEFAULT : component.getSegmentCache();
+    }
+
+    /**
+     * Purges the static instance.
+     */
+    public static void purge() {
+        DEFAULT.invalidateAll();
+    }
+
+    static long size() {
+        return DEFAULT.getSize();
+    }
+
+    private static String getFieldName(ValueSource routeValueSource) {
+        if (routeValueSource instanceof LineStringValueSource) {
+            return ((LineStringValueSource) routeValueSource).getLinestringFieldName();
+        }
+
+        if (routeValueSource instanceof BinaryLineStringValueSource) {
+            return ((BinaryLineStringValueSource) routeValueSource).getLinestringFieldName();
+        }
+
+        return null;
+    }
+
+    public FunctionValues cached(ValueSource routeValueSource, FunctionValues routeValues, FunctionValues hashValues,
+            LeafReaderContext readerContext) {
+        String fieldName = getFieldName(routeValueSource);
+        IndexReader.CacheHelper cacheHelper = readerContext.reader().getCoreCacheHelper();
+
+        if (fieldName == null || cacheHelper == null) {
+            return routeValues;
+        }
+
+        IndexReader.CacheKey segmentKey = cacheHelper.getKey();
+        if (this.registeredSegments.add(segmentKey)) {
+            cacheHelper.addClosedListener(this::evict);
+        }
+
+        return new CachedLineStringFunctionValues(segmentKey, fieldName, routeValues, hashValues);
+    }
+
+    public long getHeapBytes() {
+        return this.cache.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0)).orElse(0L);
+    }
+
+    public CacheStats getStats() {
+        return this.cache.stats();
+    }
+
+    public long getSize() {
+        this.cache.cleanUp();
+        return this.cache.estimatedSize();
+    }
+
+    /**
+     * @return <code>true</code> if routes of the segment are cached.
+     */
+    public boolean isCached(LeafReaderContext readerContext) {
+        IndexReader.CacheHelper cacheHelper = readerContext.reader().getCoreCacheHelper();
+        return cacheHelper != null && this.segmentKeys.containsKey(cacheHelper.getKey());
+    }
+
+    /**
+     * Drops all cached routes. The closed listeners of the segments stay registered.
+     */
+    public void invalidateAll() {
+        this.segmentKeys.clear();
+        this.cache.invalidateAll();
+        this.cache.cleanUp();
+    }
+
+    private void evict(IndexReader.CacheKey segmentKey) {
+        this.registeredSegments.remove(segmentKey);
+
+        Set<SegmentDocKey> keys = this.segmentKeys.remove(segmentKey);
+        if (keys != null) {
+            this.cache.invalidateAll(keys);
+        }
+    }
+
+    private void put(SegmentDocKey key, Optional<LineString> value) {
+        this.segmentKeys.compute(key.segmentKey, (segmentKey, keys) -> {
+            Set<SegmentDocKey> result = keys == null ? ConcurrentHashMap.newKeySet() : keys;
+            result.add(key);
+            return result;
+        });
+        this.cache.put(key, value);
+    }
+
+    private void removeSegmentKey(SegmentDocKey key) {
+        this.segmentKeys.computeIfPresent(key.segmentKey, (segmentKey, keys) -> {
+            keys.remove(key);
+            return keys.isEmpty() ? null : keys;
+        });
+    }
+
+    private final class CachedLineStringFunctionValues extends FunctionValues {
+
+        private final IndexReader.CacheKey segmentKey;
+        private final String fieldName;
+        private final FunctionValues routeValues;
+        private final FunctionValues hashValues;
+
+        private CachedLineStringFunctionValues(IndexReader.CacheKey segmentKey, String fieldName, FunctionValues routeValues,
+                FunctionValues hashValues) {
+            this.segmentKey = segmentKey;
+            this.fieldName = fieldName;
+            this.routeValues = routeValues;
+            this.hashValues = hashValues;
+        }
+
+        @Override
+        public boolean exists(int doc) throws IOException {
+            return this.objectVal(doc) != null;
+        }
+
+        @Override
+        public Object objectVal(int doc) throws IOException {
+            SegmentDocKey key = new SegmentDocKey(this.segmentKey, this.fieldName, doc);
+
+            Optional<LineString> cached = SegmentLineStringCache.this.cache.getIfPresent(key);
+            if (cached == null) {
+                cached = Optional.ofNullable(LineStringUtils.getLineString(this.routeValues, this.hashValues, doc,
+                    SegmentLineStringCache.this.lineStringCache));
+                SegmentLineStringCache.this.put(key, cached);
+            }
+
+            return cached.orElse(null);
+        }
+
+        @Override
+        public String strVal(int doc) throws IOException {
+            return this.routeValues.strVal(doc);
+        }
+
+        @Override
+        public String toString(int doc) throws IOException {
+            return this.routeValues.toString(doc);
+        }
+    }
+
+    private static final class SegmentDocKey {
+
+        private final IndexReader.CacheKey segmentKey;
+        private final String fieldName;
+        private final int docId;
+
+        private SegmentDocKey(IndexReader.CacheKey segmentKey, String fieldName, int docId) {
+            this.segmentKey = segmentKey;
+            this.fieldName = fieldName;
+            this.docId = docId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof SegmentDocKey)) {
+                return false;
+            }
+
+            SegmentDocKey other = (SegmentDocKey) o;
+            return this.segmentKey == other.segmentKey && this.docId == other.docId && this.fieldName.equals(other.fieldName);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * this.segmentKey.hashCode() + this.fieldName.hashCode()) + this.docId;
+        }
+    }
+}
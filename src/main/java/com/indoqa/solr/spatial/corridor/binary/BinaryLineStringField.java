@@ -0,0 +1,155 @@
+/*
+ * Licensed to the Indoqa Software Design und Beratung GmbH (Indoqa) under
+ * one or more contributor license agreements. See the NOTICE file distributed
+ * with this work for additional information regarding copyright ownership.
+ * Indoqa licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.indoqa.solr.spatial.corridor.binary;
+
+import static org.apache.solr.common.SolrException.ErrorCode.BAD_REQUEST;
+import static org.apache.solr.common.SolrException.ErrorCode.SERVER_ERROR;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.indoqa.solr.spatial.corridor.wkt.WktUtils;
+import org.apache.lucene.document.BinaryDocValuesField;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.index.IndexableField;
+import org.apache.lucene.queries.function.ValueSource;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.util.BytesRef;
+import org.apache.solr.common.SolrException;
+import org.apache.solr.response.TextResponseWriter;
+import org.apache.solr.schema.FieldType;
+import org.apache.solr.schema.SchemaField;
+import org.apache.solr.search.QParser;
+import org.apache.solr.uninverting.UninvertingReader.Type;
+import org.locationtech.jts.geom.LineString;
+
+/**
+ * Field type for routes in the format of {@link BinaryLineStringUtils}, kept in {@link org.apache.lucene.index.BinaryDocValues}.
+ * Accepts the encoded bytes (as written by the <code>LinestringHashUpdateProcessorFactory</code>), a {@link LineString} or its
+ * WKT. The field is not searchable, <code>docValues="true"</code> is required.
+ */
+public class BinaryLineStringField extends FieldType {
+
+    @Override
+    public void checkSchemaField(SchemaField field) {
+        super.checkSchemaField(field);
+
+        if (!field.hasDocValues()) {
+            throw new SolrException(SERVER_ERROR, "Field '" + field.getName() + "' of type " + this.getClass().getSimpleName()
+                + " requires docValues=\"true\"");
+        }
+
+        if (field.multiValued()) {
+            throw new SolrException(SERVER_ERROR, "Field '" + field.getName() + "' of type " + this.getClass().getSimpleName()
+                + " cannot be multiValued");
+        }
+    }
+
+    @Override
+    public List<IndexableField> createFields(SchemaField field, Object value) {
+        if (value == null) {
+            return Collections.emptyList();
+        }
+
+        byte[] bytes = this.toBytes(value);
+
+        List<IndexableField> result = new ArrayList<>(2);
+        result.add(new BinaryDocValuesField(field.getName(), new BytesRef(bytes)));
+        if (field.stored()) {
+            result.add(new StoredField(field.getName(), bytes));
+        }
+        return result;
+    }
+
+    @Override
+    public SortField getSortField(SchemaField field, boolean top) {
+        throw new SolrException(BAD_REQUEST, "Cannot sort on field '" + field.getName() + "' of type "
+            + this.getClass().getSimpleName());
+    }
+
+    @Override
+    public Type getUninversionType(SchemaField sf) {
+        return null;
+    }
+
+    @Override
+    public ValueSource getValueSource(SchemaField field, QParser parser) {
+        return new BinaryLineStringValueSource(field.getName());
+    }
+
+    @Override
+    public String toExternal(IndexableField f) {
+        return this.decode(f.binaryValue()).toText();
+    }
+
+    @Override
+    public Object toObject(SchemaField sf, BytesRef term) {
+        return this.decode(term).toText();
+    }
+
+    @Override
+    public Object toObject(IndexableField f) {
+        return this.toExternal(f);
+    }
+
+    @Override
+    public void write(TextResponseWriter writer, String name, IndexableField f) throws IOException {
+        writer.writeStr(name, this.toExternal(f), true);
+    }
+
+    @Override
+    protected void checkSupportsDocValues() {
+        // binary doc values are supported
+    }
+
+    /**
+     * @return the value to be indexed in the format of this field type: encoded bytes are taken as they are, a
+     * {@link LineString} or WKT is encoded.
+     */
+    protected byte[] toBytes(Object value) {
+        if (value instanceof byte[]) {
+            return (byte[]) value;
+        }
+
+        if (value instanceof ByteBuffer) {
+            ByteBuffer buffer = ((ByteBuffer) value).duplicate();
+            byte[] result = new byte[buffer.remaining()];
+            buffer.get(result);
+            return result;
+        }
+
+        if (value instanceof LineString) {
+            return this.encode((LineString) value);
+        }
+
+        return this.encode(WktUtils.parseLineString(value.toString()));
+    }
+
+    protected LineString decode(BytesRef bytes) {
+        return BinaryLineStringUtils.decode(bytes);
+    }
+
+    /**
+     * @return the route in the format of this field type.
+     */
+    public byte[] encode(LineString lineString) {
+        return BinaryLineStringUtils.encode(lineString);
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Licensed to the Indoqa Software Design und Beratung GmbH (Indoqa) under
+ * one or more contributor license agreements. See the NOTICE file distributed
+ * with this work for additional information regarding copyright ownership.
+ * Indoqa licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.indoqa.solr.spatial.corridor.binary;
+
+import java.io.IOException;
+
+import org.apache.lucene.index.BinaryDocValues;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.queries.function.FunctionValues;
+import org.locationtech.jts.geom.LineString;
+
+/**
+ * Decodes routes from {@link BinaryDocValues}. {@link #objectVal(int)} returns the decoded {@link LineString}, {@link #strVal(int)}
+ * its WKT.
+ */
+public class BinaryLineStringFunctionValues extends FunctionValues {
+
+    private final LeafReader reader;
+    private final String fieldName;
+
+    private BinaryDocValues docValues;
+    private int currentDocId = -1;
+    private LineString currentLineString;
+
+    public BinaryLineStringFunctionValues(String fieldName, LeafReader reader) throws IOException {
+        this.fieldName = fieldName;
+        this.reader = reader;
+        this.docValues = DocValues.getBinary(reader, fieldName);
+    }
+
+    @Override
+    public boolean exists(int doc) throws IOException {
+        return this.getLineString(doc) != null;
+    }
+
+    public LineString getLineString(int doc) throws IOException {
+        if (doc == this.currentDocId) {
+            return this.currentLineString;
+        }
+
+        if (doc < this.currentDocId) {
+            // doc values can only be iterated forward
+            this.docValues = DocValues.getBinary(this.reader, this.fieldName);
+        }
+
+        this.currentDocId = doc;
+        this.currentLineString = null;
+
+        if (this.docValues.advanceExact(doc)) {
+            this.currentLineString = BinaryLineStringUtils.decode(this.docValues.binaryValue());
+        }
+
+        return this.currentLineString;
+    }
+
+    @Override
+    public Object objectVal(int doc) throws IOException {
+        return this.getLineString(doc);
+    }
+
+    @Override
+    public String strVal(int doc) throws IOException {
+        LineString lineString = this.getLineString(doc);
+
+        if (lineString == null) {
+            return null;
+        }
+
+        return lineString.toText();
+    }
+
+    @Override
+    public String toString(int doc) throws IOException {
+        return this.fieldName + "=" + this.strVal(doc);
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * Licensed to the Indoqa Software Design und Beratung GmbH (Indoqa) under
+ * one or more contributor license agreements. See the NOTICE file distributed
+ * with this work for additional information regarding copyright ownership.
+ * Indoqa licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.indoqa.solr.spatial.corridor.binary;
+
+import org.apache.lucene.util.BytesRef;
+import org.locationtech.jts.geom.CoordinateSequence;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.geom.impl.PackedCoordinateSequence;
+
+/**
+ * Compact binary representation of a route: a format version byte, the number of coordinates and the deltas of consecutive
+ * coordinates as zigzag encoded variable length integers. Coordinates are stored in fixed point with a resolution of
+ * 1e-7 degrees (about 1 cm), which keeps the encoding of a typical route well below a third of its WKT.
+ */
+public final class BinaryLineStringUtils {
+
+    public static final byte FORMAT_VERSION = 1;
+
+    private static final double SCALE = 1e7;
+    private static final int MAX_VARINT_BYTES = 10;
+
+    private static final GeometryFactory GEOMETRY_FACTORY = new GeometryFactory();
+
+    private BinaryLineStringUtils() {
+        // hide utility class constructor
+    }
+
+    public static LineString decode(BytesRef bytesRef) {
+        return decode(bytesRef.bytes, bytesRef.offset, bytesRef.length);
+    }
+
+    public static LineString decode(byte[] bytes, int offset, int length) {
+        Reader reader = new Reader(bytes, offset, length);
+
+        byte version = reader.readByte();
+        if (version != FORMAT_VERSION) {
+            throw new IllegalArgumentException("Unsupported binary linestring format version " + version);
+        }
+
+        int size = (int) reader.readVarLong();
+        if (size == 0) {
+            return GEOMETRY_FACTORY.createLineString((CoordinateSequence) null);
+        }
+
+        double[] coordinates = new double[size * 2];
+        long x = 0;
+        long y = 0;
+        for (int i = 0; i < size; i++) {
+            x += reader.readZigZagLong();
+            y += reader.readZigZagLong();
+
+            coordinates[i * 2] = x / SCALE;
+            coordinates[i * 2 + 1] = y / SCALE;
+        }
+
+        return GEOMETRY_FACTORY.createLineString(new PackedCoordinateSequence.Double(coordinates, 2, 0));
+    }
+
+    public static byte[] encode(LineString lineString) {
+        CoordinateSequence coordinates = lineString.getCoordinateSequence();
+        int size = coordinates.size();
+
+        Writer writer = new Writer(1 + MAX_VARINT_BYTES + size * 2 * MAX_VARINT_BYTES);
+        writer.writeByte(FORMAT_VERSION);
+        writer.writeVarLong(size);
+
+        long previousX = 0;
+        long previousY = 0;
+        for (int i = 0; i < size; i++) {
+            long x = Math.round(coordinates.getX(i) * SCALE);
+            long y = Math.round(coordinates.getY(i) * SCALE);
+
+            writer.writeZigZagLong(x - previousX);
+            writer.writeZigZagLong(y - previousY);
+
+            previousX = x;
+            previousY = y;
+        }
+
+        return writer.toByteArray();
+    }
+
+    private static final class Reader {
+
+        private final byte[] bytes;
+        private final int end;
+        private int position;
+
+        private Reader(byte[] bytes, int offset, int length) {
+            this.bytes = bytes;
+            this.position = offset;
+            this.end = offset + length;
+        }
+
+        private byte readByte() {
+            if (this.position >= this.end) {
+                throw new IllegalArgumentException("Unexpected end of binary linestring.");
+            }
+
+            return this.bytes[this.position++];
+        }
+
+        private long readVarLong() {
+            long result = 0;
+
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte current = this.readByte();
+                result |= (long) (current & 0x7F) << shift;
+
+                if ((current & 0x80) == 0) {
+                    return result;
+                }
+            }
+
+            throw new IllegalArgumentException("Invalid variable length integer in binary linestring.");
+        }
+
+        private long readZigZagLong() {
+            long value = this.readVarLong();
+            return (value >>> 1) ^ -(value & 1);
+        }
+    }
+
+    private static final class Writer {
+
+        private final byte[] bytes;
+        private int position;
+
+        private Writer(int capacity) {
+            this.bytes = new byte[capacity];
+        }
+
+        private byte[] toByteArray() {
+            byte[] result = new byte[this.position];
+            System.arraycopy(this.bytes, 0, result, 0, this.position);
+            return result;
+        }
+
+        private void writeByte(byte value) {
+            this.bytes[this.position++] = value;
+        }
+
+        private void writeVarLong(long value) {
+            long remaining = value;
+
+            while ((remaining & ~0x7FL) != 0) {
+                this.writeByte((byte) ((remaining & 0x7F) | 0x80));
+                remaining >>>= 7;
+            }
+
+            this.writeByte((byte) remaining);
+        }
+
+        private void writeZigZagLong(long value) {
+            this.writeVarLong((value << 1) ^ (value >> 63));
+        }
+    }
+}
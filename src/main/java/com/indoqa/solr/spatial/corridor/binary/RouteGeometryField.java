@@ -0,0 +1,76 @@
+/*
+ * Licensed to the Indoqa Software Design und Beratung GmbH (Indoqa) under
+ * one or more contributor license agreements. See the NOTICE file distributed
+ * with this work for additional information regarding copyright ownership.
+ * Indoqa licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.indoqa.solr.spatial.corridor.binary;
+
+import java.util.Map;
+
+import com.indoqa.solr.spatial.corridor.geo.RouteIndex;
+import com.indoqa.solr.spatial.corridor.geo.RouteIndexView;
+import org.apache.lucene.queries.function.ValueSource;
+import org.apache.lucene.util.BytesRef;
+import org.apache.solr.schema.IndexSchema;
+import org.apache.solr.schema.SchemaField;
+import org.apache.solr.search.QParser;
+import org.locationtech.jts.geom.LineString;
+
+/**
+ * Field type for routes with their precomputed geometry in the layout of {@link RouteIndex#encode(double...)}: coordinates,
+ * cumulative lengths and segment bounding boxes. The bytes are kept in {@link org.apache.lucene.index.BinaryDocValues}, so they
+ * are written once per segment at indexing time and read through a {@link RouteIndexView} at query time, without parsing or
+ * building a {@link RouteIndex} per document.
+ * <p>
+ * Accepts a {@link LineString}, its WKT or the encoded bytes. <code>docValues="true"</code> is required.
+ * <p>
+ * With the attribute <code>simplificationInMeters</code> (comma separated tolerances, e.g. "1000,100"), simplified versions of
+ * each route are stored as well, with their maximum error. Functions that only need to know whether a route is within a
+ * distance evaluate them first, see {@link com.indoqa.solr.spatial.corridor.query.points.PointsDistanceValueSource}.
+ */
+public class RouteGeometryField extends BinaryLineStringField {
+
+    private double[] simplificationTolerancesInMeters = new double[0];
+
+    @Override
+    public ValueSource getValueSource(SchemaField field, QParser parser) {
+        return new RouteGeometryValueSource(field.getName());
+    }
+
+    @Override
+    protected LineString decode(BytesRef bytes) {
+        return new RouteIndexView().wrap(bytes).getLineString();
+    }
+
+    @Override
+    public byte[] encode(LineString lineString) {
+        return new RouteIndex(lineString).encode(this.simplificationTolerancesInMeters);
+    }
+
+    @Override
+    protected void init(IndexSchema schema, Map<String, String> args) {
+        String simplifications = args.remove("simplificationInMeters");
+
+        if (simplifications != null && !simplifications.trim().isEmpty()) {
+            String[] tolerances = simplifications.split(",");
+
+            this.simplificationTolerancesInMeters = new double[tolerances.length];
+            for (int i = 0; i < tolerances.length; i++) {
+                this.simplificationTolerancesInMeters[i] = Double.parseDouble(tolerances[i].trim());
+            }
+        }
+
+        super.init(schema, args);
+    }
+}
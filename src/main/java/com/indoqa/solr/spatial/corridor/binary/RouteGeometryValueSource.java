@@ -0,0 +1,62 @@
+/*
+ * Licensed to the Indoqa Software Design und Beratung GmbH (Indoqa) under
+ * one or more contributor license agreements. See the NOTICE file distributed
+ * with this work for additional information regarding copyright ownership.
+ * Indoqa licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.indoqa.solr.spatial.corridor.binary;
+
+import java.io.IOException;
+import java.util.Map;
+
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.queries.function.FunctionValues;
+import org.apache.lucene.queries.function.ValueSource;
+
+public class RouteGeometryValueSource extends ValueSource {
+
+    private final String routeGeometryFieldName;
+
+    public RouteGeometryValueSource(String routeGeometryFieldName) {
+        this.routeGeometryFieldName = routeGeometryFieldName;
+    }
+
+    @Override
+    public String description() {
+        return "routeGeometry(" + this.routeGeometryFieldName + ")";
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof RouteGeometryValueSource)) {
+            return false;
+        }
+
+        return this.routeGeometryFieldName.equals(((RouteGeometryValueSource) o).routeGeometryFieldName);
+    }
+
+    public String getRouteGeometryFieldName() {
+        return this.routeGeometryFieldName;
+    }
+
+    @SuppressWarnings("rawtypes")
+    @Override
+    public FunctionValues getValues(Map context, LeafReaderContext readerContext) throws IOException {
+        return new RouteGeometryFunctionValues(this.routeGeometryFieldName, readerContext.reader());
+    }
+
+    @Override
+    public int hashCode() {
+        return ("routeGeometry" + this.routeGeometryFieldName).hashCode();
+    }
+}
@@ -19,8 +19,11 @@ package com.indoqa.solr.spatial.corridor.direction;
 import java.io.IOException;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 import com.indoqa.solr.spatial.corridor.LineStringUtils;
+import com.indoqa.solr.spatial.corridor.QueryShapeProvider;
+import com.indoqa.solr.spatial.corridor.SegmentLineStringCache;
 import org.apache.commons.lang3.ObjectUtils;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.queries.function.FunctionValues;
@@ -29,6 +32,7 @@ import org.apache.lucene.queries.function.docvalues.DoubleDocValues;
 
 import com.indoqa.solr.spatial.corridor.debug.DebugValues;
 import com.indoqa.solr.spatial.corridor.debug.NoOpDebugValues;
+import com.indoqa.solr.spatial.corridor.wkt.WktUtils;
 import org.locationtech.jts.geom.Coordinate;
 import org.locationtech.jts.geom.LineString;
 import org.locationtech.jts.geom.Point;
@@ -37,7 +41,7 @@ import org.locationtech.jts.linearref.LocationIndexedLine;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public class DirectionValueSource extends ValueSource {
+public class DirectionValueSource extends ValueSource implements QueryShapeProvider {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(DirectionValueSource.class);
 
@@ -86,11 +90,17 @@ public class DirectionValueSource extends ValueSource {
         return this.queryPoints;
     }
 
+    @Override
+    public List<String> getQueryShapes() {
+        return this.queryPoints.stream().map(WktUtils::toPointWkt).collect(Collectors.toList());
+    }
+
     @SuppressWarnings("rawtypes")
     @Override
     public final FunctionValues getValues(Map context, LeafReaderContext readerContext) throws IOException {
-        FunctionValues locationValues = this.routeValueSource.getValues(context, readerContext);
         FunctionValues hashValues = this.routeHashValueSource.getValues(context, readerContext);
+        FunctionValues locationValues = SegmentLineStringCache.cached(context, this.routeValueSource,
+            this.routeValueSource.getValues(context, readerContext), hashValues, readerContext);
         return this.getFunctionValues(locationValues, hashValues);
     }
 
@@ -133,20 +143,16 @@ public class DirectionValueSource extends ValueSource {
 
         @Override
         public double doubleVal(int docId) throws IOException {
-            String routeAsString = this.routeValues.strVal(docId);
-            String routeAsHash = this.hashValues.strVal(docId);
-
             try {
-                if (routeAsString == null || routeAsString.isEmpty()) {
+                LineString route = LineStringUtils.getLineString(this.routeValues, this.hashValues, docId);
+                if (route == null) {
                     this.debugValues.add("routeAsString", "empty");
                     return -1;
                 }
 
-                LineString route = LineStringUtils.parseOrGet(routeAsString, routeAsHash);
-
                 return DirectionValueSource.this.getValue(this.debugValues, route);
             } catch(Exception e){
-                LOGGER.error("Could not calculate value. | linestring={}", routeAsString, e);
+                LOGGER.error("Could not calculate value. | docId={}", docId, e);
             }
             return Double.MAX_VALUE;
         }
@@ -56,7 +56,7 @@ public class DirectionValueSourceParser extends ValueSourceParser {
 
         double pointsMaxDistanceToRoute = fp.getParams().getDouble("corridor.pointsMaxDistanceToRoute", 0.01);
 
-        return this.createValueSource(queryPoints, new LineStringValueSource(fp.parseArg()), fp.parseValueSource(), pointsMaxDistanceToRoute);
+        return this.createValueSource(queryPoints, LineStringValueSource.parse(fp), fp.parseValueSource(), pointsMaxDistanceToRoute);
     }
 
     protected ValueSource createValueSource(List<Point> queryPoints, ValueSource routeValueSource, ValueSource routeHashValueSource,
@@ -18,14 +18,13 @@ package com.indoqa.solr.spatial.corridor.direction;
 
 import java.util.List;
 
-import com.indoqa.solr.spatial.corridor.LineStringValueSource;
 import org.locationtech.jts.geom.Point;
 import org.apache.lucene.queries.function.ValueSource;
 
 public class InDirectionDebugValueSourceParser extends InDirectionValueSourceParser {
 
     @Override
-    protected ValueSource createValueSource(List<Point> queryPoints, LineStringValueSource routeValueSource,
+    protected ValueSource createValueSource(List<Point> queryPoints, ValueSource routeValueSource,
         ValueSource routeHashValueSource, double maxAngleDifference, boolean bidirectional,
         double maxAngleDifferenceAdditionalPointsCheck, double pointsMaxDistanceToRoute, int percentageOfPointsWithinDistance,
         boolean alwaysCheckPointDistancePercent) {
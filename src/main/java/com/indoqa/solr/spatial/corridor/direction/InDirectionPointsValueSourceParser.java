@@ -40,7 +40,7 @@ public class InDirectionPointsValueSourceParser extends ValueSourceParser {
     @Override
     public ValueSource parse(FunctionQParser fp) throws SyntaxError {
         String route = fp.getParam("corridor.route");
-        LineString lineString = LineStringUtils.parseOrGet(route, String.valueOf(route.hashCode()));
+        LineString lineString = LineStringUtils.parseOrGet(fp.getReq(), route);
         ValueSource locationValueSource = new LineStringValueSource(fp.parseArg());
 
         double maxAngleDifference = fp.getParams().getDouble("corridor.maxAngleDifference", 0);
@@ -21,10 +21,14 @@ import static com.indoqa.solr.spatial.corridor.direction.InDirectionUtils.*;
 import java.io.IOException;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 import com.indoqa.solr.spatial.corridor.LineStringUtils;
+import com.indoqa.solr.spatial.corridor.QueryShapeProvider;
+import com.indoqa.solr.spatial.corridor.SegmentLineStringCache;
 import com.indoqa.solr.spatial.corridor.debug.DebugValues;
 import com.indoqa.solr.spatial.corridor.debug.NoOpDebugValues;
+import com.indoqa.solr.spatial.corridor.wkt.WktUtils;
 import org.locationtech.jts.geom.LineString;
 import org.locationtech.jts.geom.Point;
 import org.apache.commons.lang3.ObjectUtils;
@@ -35,7 +39,7 @@ import org.apache.lucene.queries.function.docvalues.DoubleDocValues;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public class InDirectionValueSource extends ValueSource {
+public class InDirectionValueSource extends ValueSource implements QueryShapeProvider {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(InDirectionValueSource.class);
 
@@ -95,11 +99,17 @@ public class InDirectionValueSource extends ValueSource {
         return this.queryPoints;
     }
 
+    @Override
+    public List<String> getQueryShapes() {
+        return this.queryPoints.stream().map(WktUtils::toPointWkt).collect(Collectors.toList());
+    }
+
     @SuppressWarnings("rawtypes")
     @Override
     public final FunctionValues getValues(Map context, LeafReaderContext readerContext) throws IOException {
-        FunctionValues locationValues = this.routeValueSource.getValues(context, readerContext);
         FunctionValues hashValues = this.routeHashValueSource.getValues(context, readerContext);
+        FunctionValues locationValues = SegmentLineStringCache.cached(context, this.routeValueSource,
+            this.routeValueSource.getValues(context, readerContext), hashValues, readerContext);
         return getFunctionValues(locationValues, hashValues);
     }
 
@@ -171,17 +181,13 @@ public class InDirectionValueSource extends ValueSource {
 
         @Override
         public double doubleVal(int docId) throws IOException {
-            String routeAsString = this.routeValues.strVal(docId);
-            String routeAsHash = this.hashValues.strVal(docId);
-
             try {
-                if (routeAsString == null || routeAsString.isEmpty()) {
+                LineString route = LineStringUtils.getLineString(this.routeValues, this.hashValues, docId);
+                if (route == null) {
                     this.debugValues.add("routeAsString", "empty");
                     return -1;
                 }
 
-                LineString route = LineStringUtils.parseOrGet(routeAsString, routeAsHash);
-
                 if (this.alwaysCheckPointDistancePercent && !enoughPointsWithinDistance(route)) {
                     this.debugValues.add("alwaysCheckPointDistancePercent", true);
                     this.debugValues.add("enoughPointsWithinDistance", false);
@@ -225,7 +231,7 @@ public class InDirectionValueSource extends ValueSource {
 
                 return 0;
             } catch (Exception e) {
-                LOGGER.error("Could not calculate value. | linestring={}", routeAsString, e);
+                LOGGER.error("Could not calculate value. | docId={}", docId, e);
             }
             return Double.MAX_VALUE;
         }
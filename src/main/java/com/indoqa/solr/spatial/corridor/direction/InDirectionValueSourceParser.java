@@ -49,7 +49,7 @@ public class InDirectionValueSourceParser extends ValueSourceParser {
             queryPoints.add(WktUtils.parsePoint(queryPointParameter));
         }
 
-        LineStringValueSource routeValueSource = new LineStringValueSource(fp.parseArg());
+        ValueSource routeValueSource = LineStringValueSource.parse(fp);
         ValueSource routeHashValueSource = fp.parseValueSource();
 
         double maxAngleDifference =  fp.getParams().getDouble("corridor.maxAngleDifference", 0);
@@ -64,7 +64,7 @@ public class InDirectionValueSourceParser extends ValueSourceParser {
             alwaysCheckPointDistancePercent);
     }
 
-    protected ValueSource createValueSource(List<Point> queryPoints, LineStringValueSource routeValueSource,
+    protected ValueSource createValueSource(List<Point> queryPoints, ValueSource routeValueSource,
         ValueSource routeHashValueSource, double maxAngleDifference, boolean bidirectional,
         double maxAngleDifferenceAdditionalPointsCheck, double pointsMaxDistanceToRoute, int percentageOfPointsWithinDistance,
         boolean alwaysCheckPointDistancePercent) {
@@ -0,0 +1,144 @@
+/*
+ * Licensed to the Indoqa Software Design und Beratung GmbH (Indoqa) under
+ * one or more contributor license agreements. See the NOTICE file distributed
+ * with this work for additional information regarding copyright ownership.
+ * Indoqa licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.indoqa.solr.spatial.corridor.geo;
+
+import java.util.Locale;
+
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.operation.buffer.BufferOp;
+import org.locationtech.jts.operation.buffer.BufferParameters;
+import org.locationtech.jts.simplify.DouglasPeuckerSimplifier;
+import org.locationtech.jts.simplify.TopologyPreservingSimplifier;
+
+/**
+ * Creates the corridor polygon of a route: the buffer of the route by a radius in meters. The defaults are the same as
+ * {@link Geometry#buffer(double)} (8 quadrant segments, round caps). Fewer quadrant segments, flat caps and simplification make
+ * the polygon considerably cheaper to calculate and smaller to store.
+ * <p>
+ * Simplification moves the boundary by up to its tolerance, so the buffer radius is enlarged by both tolerances: simplification
+ * does not cut into the corridor, the polygon only gets slightly larger. Flat caps end the corridor at the first and last point of
+ * the route.
+ */
+public final class CorridorPolygonBuilder {
+
+    public static final CorridorPolygonBuilder DEFAULT = new CorridorPolygonBuilder(BufferParameters.DEFAULT_QUADRANT_SEGMENTS,
+        BufferParameters.CAP_ROUND, 0, 0, Simplifier.TOPOLOGY_PRESERVING);
+
+    private static final double METERS_PER_DEGREE = Math.PI / 180 * 6378137;
+
+    private final int quadrantSegments;
+    private final int endCapStyle;
+    private final double routeToleranceInMeters;
+    private final double polygonToleranceInMeters;
+    private final Simplifier polygonSimplifier;
+
+    /**
+     * @param endCapStyle one of {@link BufferParameters#CAP_ROUND}, {@link BufferParameters#CAP_FLAT} or
+     * {@link BufferParameters#CAP_SQUARE}
+     * @param routeToleranceInMeters the tolerance of the Douglas-Peucker simplification of the route before buffering, 0 to
+     * buffer the route as it is
+     * @param polygonToleranceInMeters the tolerance of the simplification of the buffer, 0 to keep the buffer as it is
+     */
+    public CorridorPolygonBuilder(int quadrantSegments, int endCapStyle, double routeToleranceInMeters,
+            double polygonToleranceInMeters, Simplifier polygonSimplifier) {
+        if (quadrantSegments < 1) {
+            throw new IllegalArgumentException("The number of quadrant segments must be positive: " + quadrantSegments);
+        }
+
+        if (routeToleranceInMeters < 0 || polygonToleranceInMeters < 0) {
+            throw new IllegalArgumentException("Simplification tolerances must not be negative.");
+        }
+
+        this.quadrantSegments = quadrantSegments;
+        this.endCapStyle = endCapStyle;
+        this.routeToleranceInMeters = routeToleranceInMeters;
+        this.polygonToleranceInMeters = polygonToleranceInMeters;
+        this.polygonSimplifier = polygonSimplifier;
+    }
+
+    /**
+     * @param name <code>round</code>, <code>flat</code> or <code>square</code>
+     */
+    public static int parseEndCapStyle(String name) {
+        switch (name.toLowerCase(Locale.ROOT)) {
+            case "round":
+                return BufferParameters.CAP_ROUND;
+            case "flat":
+                return BufferParameters.CAP_FLAT;
+            case "square":
+                return BufferParameters.CAP_SQUARE;
+            default:
+                throw new IllegalArgumentException("Unknown end cap style: " + name);
+        }
+    }
+
+    private static double toDegrees(double meters) {
+        return meters / METERS_PER_DEGREE;
+    }
+
+    public Geometry create(LineString lineString, double radiusInMeters) {
+        Geometry route = lineString;
+        if (this.routeToleranceInMeters > 0) {
+            route = DouglasPeuckerSimplifier.simplify(lineString, toDegrees(this.routeToleranceInMeters));
+        }
+
+        BufferParameters bufferParameters = new BufferParameters(this.quadrantSegments, this.endCapStyle);
+        double radius = toDegrees(radiusInMeters + this.routeToleranceInMeters + this.polygonToleranceInMeters);
+        Geometry result = BufferOp.bufferOp(route, radius, bufferParameters);
+
+        if (this.polygonToleranceInMeters > 0) {
+            result = this.polygonSimplifier.simplify(result, toDegrees(this.polygonToleranceInMeters));
+        }
+
+        return result;
+    }
+
+    public enum Simplifier {
+
+        DOUGLAS_PEUCKER {
+
+            @Override
+            public Geometry simplify(Geometry geometry, double tolerance) {
+                return DouglasPeuckerSimplifier.simplify(geometry, tolerance);
+            }
+        },
+
+        TOPOLOGY_PRESERVING {
+
+            @Override
+            public Geometry simplify(Geometry geometry, double tolerance) {
+                return TopologyPreservingSimplifier.simplify(geometry, tolerance);
+            }
+        };
+
+        /**
+         * @param name <code>douglasPeucker</code> or <code>topologyPreserving</code>
+         */
+        public static Simplifier parse(String name) {
+            for (Simplifier simplifier : values()) {
+                if (simplifier.name().replace("_", "").equalsIgnoreCase(name)) {
+                    return simplifier;
+                }
+            }
+
+            throw new IllegalArgumentException("Unknown simplifier: " + name);
+        }
+
+        public abstract Geometry simplify(Geometry geometry, double tolerance);
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Licensed to the Indoqa Software Design und Beratung GmbH (Indoqa) under
+ * one or more contributor license agreements. See the NOTICE file distributed
+ * with this work for additional information regarding copyright ownership.
+ * Indoqa licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.indoqa.solr.spatial.corridor.geo;
+
+import java.util.Locale;
+
+/**
+ * Strategies to calculate the distance between two WGS84 coordinates (in degrees) in kilometers. The approximations are
+ * considerably cheaper than the geodesic. Their relative error (compared to the geodesic) is bounded by
+ * {@link #getRelativeError()} plus {@link #getProjectionError(double, double)}, which grows with the distance and the latitude
+ * for {@link #EQUIRECTANGULAR}.
+ */
+public enum DistanceStrategy {
+
+    /**
+     * Karney's solution of the inverse geodesic problem on the WGS84 ellipsoid.
+     */
+    GEODESIC(0) {
+
+        @Override
+        public double calculateDistanceInKilometers(double lon1, double lat1, double lon2, double lat2) {
+            return GeoUtils.calculateDistanceInKilometers(lon1, lat1, lon2, lat2);
+        }
+    },
+
+    /**
+     * Great circle distance on a sphere with the mean earth radius.
+     */
+    HAVERSINE(0.006) {
+
+        @Override
+        public double calculateDistanceInKilometers(double lon1, double lat1, double lon2, double lat2) {
+            double sinHalfDeltaLatitude = Math.sin(Math.toRadians(lat2 - lat1) / 2);
+            double sinHalfDeltaLongitude = Math.sin(Math.toRadians(lon2 - lon1) / 2);
+
+            double a = sinHalfDeltaLatitude * sinHalfDeltaLatitude
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * sinHalfDeltaLongitude * sinHalfDeltaLongitude;
+            return 2 * MEAN_EARTH_RADIUS_KILOMETERS * Math.asin(Math.min(1, Math.sqrt(a)));
+        }
+    },
+
+    /**
+     * Pythagoras on a local equirectangular projection at the mean latitude of both coordinates. The projection stretches
+     * distances along the parallels away from the mean latitude, e.g. Vienna to New York is 6% longer than the geodesic.
+     */
+    EQUIRECTANGULAR(0.01) {
+
+        @Override
+        public double getProjectionError(double distanceInKilometers, double maxAbsLatitude) {
+            double cosLatitude = Math.cos(Math.toRadians(maxAbsLatitude));
+            double angle = distanceInKilometers / MEAN_EARTH_RADIUS_KILOMETERS;
+
+            // fitted to the geodesic (about 0.06 at most), doubled
+            return 0.1 * angle * angle / (cosLatitude * cosLatitude);
+        }
+
+        @Override
+        public double calculateDistanceInKilometers(double lon1, double lat1, double lon2, double lat2) {
+            double deltaLongitude = lon2 - lon1;
+            if (deltaLongitude > 180) {
+                deltaLongitude -= 360;
+            } else if (deltaLongitude < -180) {
+                deltaLongitude += 360;
+            }
+
+            double x = Math.toRadians(deltaLongitude) * Math.cos(Math.toRadians((lat1 + lat2) / 2));
+            double y = Math.toRadians(lat2 - lat1);
+            return MEAN_EARTH_RADIUS_KILOMETERS * Math.sqrt(x * x + y * y);
+        }
+    };
+
+    private static final double MEAN_EARTH_RADIUS_KILOMETERS = 6371.0088;
+
+    private final double relativeError;
+
+    DistanceStrategy(double relativeError) {
+        this.relativeError = relativeError;
+    }
+
+    /**
+     * @return the strategy with the given (case insensitive) name, {@link #GEODESIC} for <code>null</code>.
+     * @throws IllegalArgumentException if there is no strategy with that name.
+     */
+    public static DistanceStrategy parse(String name) {
+        if (name == null) {
+            return GEODESIC;
+        }
+
+        return valueOf(name.trim().toUpperCase(Locale.ROOT));
+    }
+
+    public abstract double calculateDistanceInKilometers(double lon1, double lat1, double lon2, double lat2);
+
+    /**
+     * @param distanceInKilometers the distance calculated by this strategy.
+     * @param maxAbsLatitude the larger absolute latitude of both coordinates.
+     * @return the relative error that has to be added to {@link #getRelativeError()} for this distance, 0 for strategies whose
+     * error does not depend on the distance. Infinite for coordinates at a pole.
+     */
+    public double getProjectionError(double distanceInKilometers, double maxAbsLatitude) {
+        return 0;
+    }
+
+    /**
+     * Calculates the distances of the first <code>count</code> coordinate pairs in one loop over the arrays.
+     */
+    public void calculateDistancesInKilometers(double[] lon1, double[] lat1, double[] lon2, double[] lat2, double[] distances,
+            int count) {
+        for (int i = 0; i < count; i++) {
+            distances[i] = this.calculateDistanceInKilometers(lon1[i], lat1[i], lon2[i], lat2[i]);
+        }
+    }
+
+    /**
+     * @return the relative error of short distances (up to about 200 kilometers away from the poles for
+     * {@link #EQUIRECTANGULAR}), see {@link #getProjectionError(double, double)} for longer distances.
+     */
+    public double getRelativeError() {
+        return this.relativeError;
+    }
+}
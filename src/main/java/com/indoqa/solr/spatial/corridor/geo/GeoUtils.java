@@ -18,10 +18,18 @@ package com.indoqa.solr.spatial.corridor.geo;
 
 import net.sf.geographiclib.Geodesic;
 import net.sf.geographiclib.GeodesicData;
+import net.sf.geographiclib.GeodesicMask;
 import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Envelope;
 
 public class GeoUtils {
 
+    // lower bounds of the WGS84 length of one degree latitude (at the equator) and one degree longitude (divided by cos(lat))
+    private static final double MIN_KILOMETERS_PER_DEGREE_LATITUDE = 110.574;
+    private static final double MIN_KILOMETERS_PER_DEGREE_LONGITUDE = 111.319;
+    // upper bound of the WGS84 length of one degree latitude and one degree longitude (divided by cos(lat)), both at the poles
+    private static final double MAX_KILOMETERS_PER_DEGREE = 111.7;
+
     private GeoUtils() {
         // hide utility class constructor
     }
@@ -33,8 +41,97 @@ public class GeoUtils {
         return calculateDistanceInMeters(a.getX(), a.getY(), b.getX(), b.getY()) / 1000;
     }
 
+    public static double calculateDistanceInKilometers(double lon1, double lat1, double lon2, double lat2) {
+        return calculateDistanceInMeters(lon1, lat1, lon2, lat2) / 1000;
+    }
+
+    /**
+     * Expands a WGS84 envelope (x = longitude, y = latitude) so that it contains all points within the given distance of the
+     * envelope. The result is conservative: it may contain more, but never less than these points.
+     */
+    public static Envelope expandByKilometers(Envelope envelope, double kilometers) {
+        double latitudeDelta = getLatitudeDelta(kilometers);
+        double minLatitude = Math.max(envelope.getMinY() - latitudeDelta, -90);
+        double maxLatitude = Math.min(envelope.getMaxY() + latitudeDelta, 90);
+
+        double longitudeDelta = getLongitudeDelta(kilometers, Math.max(Math.abs(minLatitude), Math.abs(maxLatitude)));
+        double minLongitude = envelope.getMinX() - longitudeDelta;
+        double maxLongitude = envelope.getMaxX() + longitudeDelta;
+
+        if (minLongitude < -180 || maxLongitude > 180) {
+            // crossing the poles or the dateline, give up on longitude
+            minLongitude = -180;
+            maxLongitude = 180;
+        }
+
+        return new Envelope(minLongitude, maxLongitude, minLatitude, maxLatitude);
+    }
+
+    /**
+     * @return a latitude difference (in degrees) that is longer than the given distance everywhere.
+     */
+    public static double getLatitudeDelta(double kilometers) {
+        return kilometers / MIN_KILOMETERS_PER_DEGREE_LATITUDE;
+    }
+
+    /**
+     * @return a longitude difference (in degrees) that is longer than the given distance at all latitudes up to
+     * <code>maxAbsoluteLatitude</code>, infinite at the poles.
+     */
+    public static double getLongitudeDelta(double kilometers, double maxAbsoluteLatitude) {
+        if (maxAbsoluteLatitude >= 90) {
+            return Double.POSITIVE_INFINITY;
+        }
+
+        return kilometers / (MIN_KILOMETERS_PER_DEGREE_LONGITUDE * Math.cos(Math.toRadians(maxAbsoluteLatitude)));
+    }
+
+    /**
+     * @return an upper bound of the geodesic distance, the length of the straight line in degrees with the largest scale of a
+     * degree along it.
+     */
+    public static double getMaxDistanceInKilometers(double lon1, double lat1, double lon2, double lat2) {
+        double minAbsoluteLatitude = Math.signum(lat1) == Math.signum(lat2) ? Math.min(Math.abs(lat1), Math.abs(lat2)) : 0;
+        double latitudeDelta = lat2 - lat1;
+        double longitudeDelta = (lon2 - lon1) * Math.cos(Math.toRadians(minAbsoluteLatitude));
+        return MAX_KILOMETERS_PER_DEGREE * Math.sqrt(latitudeDelta * latitudeDelta + longitudeDelta * longitudeDelta);
+    }
+
+    /**
+     * @return a lower bound of the geodesic distance if it is at most <code>maxKilometers</code>, otherwise a value greater
+     * than <code>maxKilometers</code>. Such a geodesic can not go beyond the latitudes of both coordinates by more than
+     * <code>maxKilometers</code>, the smallest scale of a degree along it is taken there.
+     */
+    public static double getMinDistanceInKilometers(double lon1, double lat1, double lon2, double lat2, double maxKilometers) {
+        double maxAbsoluteLatitude = Math.min(Math.max(Math.abs(lat1), Math.abs(lat2)) + getLatitudeDelta(maxKilometers), 90);
+        double latitudeDistance = (lat2 - lat1) * MIN_KILOMETERS_PER_DEGREE_LATITUDE;
+        double longitudeDistance =
+            (lon2 - lon1) * MIN_KILOMETERS_PER_DEGREE_LONGITUDE * Math.cos(Math.toRadians(maxAbsoluteLatitude));
+        return Math.sqrt(latitudeDistance * latitudeDistance + longitudeDistance * longitudeDistance);
+    }
+
+    /**
+     * @return an upper bound of the geodesic distance between two coordinates with the given planar distance (in degrees).
+     */
+    public static double getMaxDistanceInKilometers(double planarDistance) {
+        return MAX_KILOMETERS_PER_DEGREE * planarDistance;
+    }
+
+    /**
+     * @return a lower bound of the geodesic distance from a coordinate at the given latitude to any coordinate with at least
+     * the given planar distance (in degrees), if it is at most <code>maxKilometers</code>, otherwise a value greater than
+     * <code>maxKilometers</code>. Like {@link #getMinDistanceInKilometers(double, double, double, double, double)}, the
+     * smallest scale of a degree within <code>maxKilometers</code> of the latitude is taken.
+     */
+    public static double getMinDistanceInKilometers(double planarDistance, double latitude, double maxKilometers) {
+        double maxAbsoluteLatitude = Math.min(Math.abs(latitude) + getLatitudeDelta(maxKilometers), 90);
+        double minKilometersPerDegree = Math.min(MIN_KILOMETERS_PER_DEGREE_LATITUDE,
+            MIN_KILOMETERS_PER_DEGREE_LONGITUDE * Math.cos(Math.toRadians(maxAbsoluteLatitude)));
+        return minKilometersPerDegree * planarDistance;
+    }
+
     private static double calculateDistanceInMeters(double lon1, double lat1, double lon2, double lat2) {
-        GeodesicData g = Geodesic.WGS84.Inverse(lat1, lon1, lat2, lon2);
+        GeodesicData g = Geodesic.WGS84.Inverse(lat1, lon1, lat2, lon2, GeodesicMask.DISTANCE);
         return g.s12;
     }
 }
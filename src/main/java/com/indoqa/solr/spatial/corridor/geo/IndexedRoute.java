@@ -0,0 +1,61 @@
+/*
+ * Licensed to the Indoqa Software Design und Beratung GmbH (Indoqa) under
+ * one or more contributor license agreements. See the NOTICE file distributed
+ * with this work for additional information regarding copyright ownership.
+ * Indoqa licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.indoqa.solr.spatial.corridor.geo;
+
+import org.locationtech.jts.geom.LineString;
+
+/**
+ * A route with an index over its segments, see {@link RouteIndex} and {@link RouteIndexView}.
+ */
+public interface IndexedRoute {
+
+    LineString getLineString();
+
+    /**
+     * @return the planar length (in degrees) of the route from its start to the projected point.
+     */
+    double getPlanarPosition(RouteProjection projection);
+
+    int getSegmentCount();
+
+    /**
+     * @return the number of simplified versions of this route, coarsest first.
+     */
+    default int getSimplificationCount() {
+        return 0;
+    }
+
+    /**
+     * @return the maximum distance (in kilometers) between the route and its simplified version.
+     */
+    default double getSimplificationError(int level) {
+        throw new IndexOutOfBoundsException("No simplified route: " + level);
+    }
+
+    default IndexedRoute getSimplified(int level) {
+        throw new IndexOutOfBoundsException("No simplified route: " + level);
+    }
+
+    boolean isEmpty();
+
+    /**
+     * Projects the point (x, y) onto the nearest segment of the route.
+     *
+     * @return <code>false</code> if the route has no segments and nothing was projected.
+     */
+    boolean project(double x, double y, RouteProjection projection);
+}
@@ -0,0 +1,27 @@
+/*
+ * Licensed to the Indoqa Software Design und Beratung GmbH (Indoqa) under
+ * one or more contributor license agreements. See the NOTICE file distributed
+ * with this work for additional information regarding copyright ownership.
+ * Indoqa licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.indoqa.solr.spatial.corridor.geo;
+
+/**
+ * Decides whether the projection of a point onto a single segment is good enough to stop searching, see
+ * {@link RouteIndex#projectOnAnySegment(double, double, double, double, double, double, ProjectionFilter, RouteProjection)}.
+ * Implementations must not keep state per point, so one instance can be shared by all threads.
+ */
+public interface ProjectionFilter {
+
+    boolean accept(double x, double y, RouteProjection projection);
+}
@@ -0,0 +1,500 @@
+/*
+ * Licensed to the Indoqa Software Design und Beratung GmbH (Indoqa) under
+ * one or more contributor license agreements. See the NOTICE file distributed
+ * with this work for additional information regarding copyright ownership.
+ * Indoqa licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.indoqa.solr.spatial.corridor.geo;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+
+import org.locationtech.jts.geom.CoordinateSequence;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.geom.impl.PackedCoordinateSequence;
+
+/**
+ * Immutable, thread-safe index over the segments of a route. Consecutive segments are grouped into a tree of bounding boxes,
+ * so projecting a point onto the route is a branch-and-bound search instead of a scan over all segments. The result is the
+ * same as {@link org.locationtech.jts.linearref.LocationIndexedLine#project(org.locationtech.jts.geom.Coordinate)}.
+ */
+public final class RouteIndex implements IndexedRoute {
+
+    static final int NODE_CAPACITY = 8;
+
+    private static final double METERS_PER_DEGREE = Math.PI / 180 * 6378137;
+    // upper bound of the length of a degree on the WGS84 ellipsoid (a degree of latitude at the poles)
+    private static final double MAX_KILOMETERS_PER_DEGREE = 111.7;
+
+    private final LineString lineString;
+    private final int segmentCount;
+
+    private final double[] xs;
+    private final double[] ys;
+    private final double[] cumulativeLengths;
+    // calculated on first use, only positions need them
+    private volatile double[] geodesicCumulativeLengths;
+
+    private final double[][] minXs;
+    private final double[][] minYs;
+    private final double[][] maxXs;
+    private final double[][] maxYs;
+
+    public RouteIndex(LineString lineString) {
+        this.lineString = lineString;
+
+        CoordinateSequence coordinates = lineString.getCoordinateSequence();
+        int size = coordinates.size();
+
+        this.xs = new double[size];
+        this.ys = new double[size];
+        this.cumulativeLengths = new double[size];
+        for (int i = 0; i < size; i++) {
+            this.xs[i] = coordinates.getX(i);
+            this.ys[i] = coordinates.getY(i);
+
+            if (i > 0) {
+                this.cumulativeLengths[i] = this.cumulativeLengths[i - 1] + this.getSegmentLength(i - 1);
+            }
+        }
+
+        this.segmentCount = Math.max(size - 1, 0);
+
+        int levels = 1;
+        for (int nodes = nodeCount(this.segmentCount); nodes > NODE_CAPACITY; nodes = nodeCount(nodes)) {
+            levels++;
+        }
+
+        this.minXs = new double[levels][];
+        this.minYs = new double[levels][];
+        this.maxXs = new double[levels][];
+        this.maxYs = new double[levels][];
+        this.buildLevels();
+    }
+
+    static double clamp(double value) {
+        if (value < 0) {
+            return 0;
+        }
+
+        if (value > 1) {
+            return 1;
+        }
+
+        return value;
+    }
+
+    static int nodeCount(int childCount) {
+        return (childCount + NODE_CAPACITY - 1) / NODE_CAPACITY;
+    }
+
+    /**
+     * @return the coordinates, cumulative lengths and bounding boxes of this index in the layout read by {@link RouteIndexView},
+     * followed by simplified versions of the route (Douglas-Peucker with the given tolerances, coarsest first) and their maximum
+     * error in kilometers. Tolerances that do not remove any vertex are skipped.
+     */
+    public byte[] encode(double... simplificationTolerancesInMeters) {
+        if (simplificationTolerancesInMeters.length > RouteIndexView.MAX_SIMPLIFICATIONS) {
+            throw new IllegalArgumentException("At most " + RouteIndexView.MAX_SIMPLIFICATIONS + " simplified routes are supported.");
+        }
+
+        byte[] index = this.encodeIndex();
+        if (simplificationTolerancesInMeters.length == 0 || this.isEmpty()) {
+            return index;
+        }
+
+        double[] tolerances = simplificationTolerancesInMeters.clone();
+        Arrays.sort(tolerances);
+
+        List<byte[]> simplifiedIndexes = new ArrayList<>();
+        List<Double> errors = new ArrayList<>();
+        int length = index.length + 2 * Integer.BYTES;
+
+        for (int i = tolerances.length - 1; i >= 0; i--) {
+            boolean[] kept = new boolean[this.xs.length];
+            double error = this.simplify(tolerances[i] / METERS_PER_DEGREE, kept);
+
+            LineString simplified = this.createLineString(kept);
+            if (simplified.getNumPoints() >= this.xs.length) {
+                continue;
+            }
+
+            simplifiedIndexes.add(new RouteIndex(simplified).encodeIndex());
+            errors.add(error * MAX_KILOMETERS_PER_DEGREE);
+            length += Double.BYTES + 2 * Integer.BYTES + simplifiedIndexes.get(simplifiedIndexes.size() - 1).length;
+        }
+
+        if (simplifiedIndexes.isEmpty()) {
+            return index;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put(index);
+        buffer.putInt(simplifiedIndexes.size());
+        buffer.putInt(0);
+        for (int i = 0; i < simplifiedIndexes.size(); i++) {
+            buffer.putDouble(errors.get(i));
+            buffer.putInt(simplifiedIndexes.get(i).length);
+            buffer.putInt(0);
+            buffer.put(simplifiedIndexes.get(i));
+        }
+        return buffer.array();
+    }
+
+    private byte[] encodeIndex() {
+        int levels = this.minXs.length;
+        int headerLength = RouteIndexView.getHeaderLength(levels);
+
+        int nodes = 0;
+        for (double[] level : this.minXs) {
+            nodes += level.length;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(headerLength + (this.xs.length * 3 + nodes * 4) * Double.BYTES)
+            .order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(RouteIndexView.FORMAT_VERSION);
+        buffer.putInt(this.xs.length);
+        buffer.putInt(levels);
+        for (double[] level : this.minXs) {
+            buffer.putInt(level.length);
+        }
+
+        buffer.position(headerLength);
+        putDoubles(buffer, this.xs);
+        putDoubles(buffer, this.ys);
+        putDoubles(buffer, this.cumulativeLengths);
+        for (int level = 0; level < levels; level++) {
+            putDoubles(buffer, this.minXs[level]);
+            putDoubles(buffer, this.minYs[level]);
+            putDoubles(buffer, this.maxXs[level]);
+            putDoubles(buffer, this.maxYs[level]);
+        }
+
+        return buffer.array();
+    }
+
+    private static double getSegmentDistance(double x, double y, double x0, double y0, double x1, double y1) {
+        double dx = x1 - x0;
+        double dy = y1 - y0;
+        double lengthSquared = dx * dx + dy * dy;
+        double fraction = lengthSquared > 0 ? clamp(((x - x0) * dx + (y - y0) * dy) / lengthSquared) : 1;
+
+        double distanceX = x - (x0 + fraction * dx);
+        double distanceY = y - (y0 + fraction * dy);
+        return Math.sqrt(distanceX * distanceX + distanceY * distanceY);
+    }
+
+    private static void putDoubles(ByteBuffer buffer, double[] values) {
+        for (double value : values) {
+            buffer.putDouble(value);
+        }
+    }
+
+    /**
+     * @return the bounding boxes of consecutive parts of the route, at most <code>maxEnvelopes</code> but as many as possible.
+     */
+    public List<Envelope> getEnvelopes(int maxEnvelopes) {
+        List<Envelope> result = new ArrayList<>();
+
+        for (int level = 0; level < this.minXs.length; level++) {
+            if (this.minXs[level].length > maxEnvelopes) {
+                continue;
+            }
+
+            for (int node = 0; node < this.minXs[level].length; node++) {
+                result.add(new Envelope(this.minXs[level][node], this.maxXs[level][node], this.minYs[level][node],
+                    this.maxYs[level][node]));
+            }
+            return result;
+        }
+
+        if (!this.isEmpty()) {
+            result.add(this.lineString.getEnvelopeInternal());
+        }
+        return result;
+    }
+
+    @Override
+    public LineString getLineString() {
+        return this.lineString;
+    }
+
+    /**
+     * @return the length (in kilometers) of the route from its start to the projected point on the WGS84 ellipsoid: the
+     * geodesic lengths of all previous segments plus the fraction of the geodesic length of the projected segment.
+     */
+    public double getGeodesicPosition(RouteProjection projection) {
+        double[] lengths = this.getGeodesicCumulativeLengths();
+        int segmentIndex = projection.getSegmentIndex();
+        return lengths[segmentIndex] + projection.getSegmentFraction() * (lengths[segmentIndex + 1] - lengths[segmentIndex]);
+    }
+
+    @Override
+    public double getPlanarPosition(RouteProjection projection) {
+        int segmentIndex = projection.getSegmentIndex();
+        return this.cumulativeLengths[segmentIndex] + projection.getSegmentFraction() * this.getSegmentLength(segmentIndex);
+    }
+
+    @Override
+    public int getSegmentCount() {
+        return this.segmentCount;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return this.segmentCount == 0;
+    }
+
+    @Override
+    public boolean project(double x, double y, RouteProjection projection) {
+        projection.reset();
+
+        if (this.isEmpty()) {
+            return false;
+        }
+
+        int topLevel = this.minXs.length - 1;
+        for (int node = 0; node < this.minXs[topLevel].length; node++) {
+            this.searchNode(topLevel, node, x, y, projection);
+        }
+
+        return true;
+    }
+
+    /**
+     * Searches for any segment within the envelope whose projection of (x, y) the filter accepts. Other than
+     * {@link #project(double, double, RouteProjection)}, the search stops at the first accepted segment, which is not
+     * necessarily the nearest one, and skips all nodes whose bounding box does not intersect the envelope.
+     *
+     * @param projection receives the projection onto the accepted segment.
+     * @return <code>false</code> if the filter accepted no segment within the envelope.
+     */
+    public boolean projectOnAnySegment(double x, double y, double minX, double minY, double maxX, double maxY,
+            ProjectionFilter filter, RouteProjection projection) {
+        projection.reset();
+
+        int topLevel = this.minXs.length - 1;
+        for (int node = 0; node < this.minXs[topLevel].length; node++) {
+            if (this.searchAnySegment(topLevel, node, x, y, minX, minY, maxX, maxY, filter, projection)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private void buildLevels() {
+        int childCount = this.segmentCount;
+
+        for (int level = 0; level < this.minXs.length; level++) {
+            int nodes = nodeCount(childCount);
+
+            this.minXs[level] = new double[nodes];
+            this.minYs[level] = new double[nodes];
+            this.maxXs[level] = new double[nodes];
+            this.maxYs[level] = new double[nodes];
+
+            for (int node = 0; node < nodes; node++) {
+                double minX = Double.POSITIVE_INFINITY;
+                double minY = Double.POSITIVE_INFINITY;
+                double maxX = Double.NEGATIVE_INFINITY;
+                double maxY = Double.NEGATIVE_INFINITY;
+
+                int end = Math.min((node + 1) * NODE_CAPACITY, childCount);
+                for (int child = node * NODE_CAPACITY; child < end; child++) {
+                    if (level == 0) {
+                        minX = Math.min(minX, Math.min(this.xs[child], this.xs[child + 1]));
+                        minY = Math.min(minY, Math.min(this.ys[child], this.ys[child + 1]));
+                        maxX = Math.max(maxX, Math.max(this.xs[child], this.xs[child + 1]));
+                        maxY = Math.max(maxY, Math.max(this.ys[child], this.ys[child + 1]));
+                    } else {
+                        minX = Math.min(minX, this.minXs[level - 1][child]);
+                        minY = Math.min(minY, this.minYs[level - 1][child]);
+                        maxX = Math.max(maxX, this.maxXs[level - 1][child]);
+                        maxY = Math.max(maxY, this.maxYs[level - 1][child]);
+                    }
+                }
+
+                this.minXs[level][node] = minX;
+                this.minYs[level][node] = minY;
+                this.maxXs[level][node] = maxX;
+                this.maxYs[level][node] = maxY;
+            }
+
+            childCount = nodes;
+        }
+    }
+
+    private LineString createLineString(boolean[] kept) {
+        int size = 0;
+        for (boolean vertex : kept) {
+            size += vertex ? 1 : 0;
+        }
+
+        double[] coordinates = new double[size * 2];
+        int index = 0;
+        for (int i = 0; i < kept.length; i++) {
+            if (kept[i]) {
+                coordinates[index++] = this.xs[i];
+                coordinates[index++] = this.ys[i];
+            }
+        }
+
+        return this.lineString.getFactory().createLineString(new PackedCoordinateSequence.Double(coordinates, 2, 0));
+    }
+
+    private double getEnvelopeDistanceSquared(int level, int node, double x, double y) {
+        double dx = Math.max(Math.max(this.minXs[level][node] - x, x - this.maxXs[level][node]), 0);
+        double dy = Math.max(Math.max(this.minYs[level][node] - y, y - this.maxYs[level][node]), 0);
+        return dx * dx + dy * dy;
+    }
+
+    private double[] getGeodesicCumulativeLengths() {
+        double[] result = this.geodesicCumulativeLengths;
+        if (result != null) {
+            return result;
+        }
+
+        // concurrent first uses calculate the same lengths
+        result = new double[this.xs.length];
+        for (int i = 1; i < result.length; i++) {
+            result[i] = result[i - 1] + GeoUtils.calculateDistanceInKilometers(this.xs[i - 1], this.ys[i - 1], this.xs[i], this.ys[i]);
+        }
+
+        this.geodesicCumulativeLengths = result;
+        return result;
+    }
+
+    private double getSegmentLength(int segmentIndex) {
+        double dx = this.xs[segmentIndex + 1] - this.xs[segmentIndex];
+        double dy = this.ys[segmentIndex + 1] - this.ys[segmentIndex];
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+
+    private void projectOnSegment(int segmentIndex, double x, double y, RouteProjection projection) {
+        double x0 = this.xs[segmentIndex];
+        double y0 = this.ys[segmentIndex];
+        double dx = this.xs[segmentIndex + 1] - x0;
+        double dy = this.ys[segmentIndex + 1] - y0;
+        double lengthSquared = dx * dx + dy * dy;
+
+        // same semantics as LineSegment#segmentFraction: degenerated segments project onto their end point
+        double fraction = lengthSquared > 0 ? clamp(((x - x0) * dx + (y - y0) * dy) / lengthSquared) : 1;
+        double projectedX = x0 + fraction * dx;
+        double projectedY = y0 + fraction * dy;
+
+        double distanceSquared = (x - projectedX) * (x - projectedX) + (y - projectedY) * (y - projectedY);
+        if (distanceSquared < projection.getDistanceSquared()) {
+            projection.set(segmentIndex, fraction, projectedX, projectedY, distanceSquared);
+        }
+    }
+
+    /**
+     * Douglas-Peucker simplification of the vertices of this route.
+     *
+     * @return the maximum planar distance (in degrees) of a removed vertex to the simplified segment replacing it. As the
+     * simplified route connects a subset of the vertices in order, this is also the maximum distance of any point of the
+     * simplified route to this route.
+     */
+    private double simplify(double tolerance, boolean[] kept) {
+        double result = 0;
+
+        kept[0] = true;
+        kept[kept.length - 1] = true;
+
+        Deque<int[]> ranges = new ArrayDeque<>();
+        ranges.push(new int[] {0, kept.length - 1});
+        while (!ranges.isEmpty()) {
+            int[] range = ranges.pop();
+            int start = range[0];
+            int end = range[1];
+
+            int farthest = -1;
+            double maxDistance = 0;
+            for (int i = start + 1; i < end; i++) {
+                double distance = getSegmentDistance(this.xs[i], this.ys[i], this.xs[start], this.ys[start], this.xs[end],
+                    this.ys[end]);
+                if (distance > maxDistance) {
+                    farthest = i;
+                    maxDistance = distance;
+                }
+            }
+
+            if (maxDistance > tolerance) {
+                kept[farthest] = true;
+                ranges.push(new int[] {start, farthest});
+                ranges.push(new int[] {farthest, end});
+            } else {
+                result = Math.max(result, maxDistance);
+            }
+        }
+
+        return result;
+    }
+
+    private boolean searchAnySegment(int level, int node, double x, double y, double minX, double minY, double maxX, double maxY,
+            ProjectionFilter filter, RouteProjection projection) {
+        if (this.minXs[level][node] > maxX || this.maxXs[level][node] < minX || this.minYs[level][node] > maxY
+            || this.maxYs[level][node] < minY) {
+            return false;
+        }
+
+        int childCount = level == 0 ? this.segmentCount : this.minXs[level - 1].length;
+        int end = Math.min((node + 1) * NODE_CAPACITY, childCount);
+
+        for (int child = node * NODE_CAPACITY; child < end; child++) {
+            if (level > 0) {
+                if (this.searchAnySegment(level - 1, child, x, y, minX, minY, maxX, maxY, filter, projection)) {
+                    return true;
+                }
+                continue;
+            }
+
+            if (Math.min(this.xs[child], this.xs[child + 1]) > maxX || Math.max(this.xs[child], this.xs[child + 1]) < minX
+                || Math.min(this.ys[child], this.ys[child + 1]) > maxY || Math.max(this.ys[child], this.ys[child + 1]) < minY) {
+                continue;
+            }
+
+            projection.reset();
+            this.projectOnSegment(child, x, y, projection);
+            if (filter.accept(x, y, projection)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private void searchNode(int level, int node, double x, double y, RouteProjection projection) {
+        if (this.getEnvelopeDistanceSquared(level, node, x, y) >= projection.getDistanceSquared()) {
+            return;
+        }
+
+        int childCount = level == 0 ? this.segmentCount : this.minXs[level - 1].length;
+        int end = Math.min((node + 1) * NODE_CAPACITY, childCount);
+
+        for (int child = node * NODE_CAPACITY; child < end; child++) {
+            if (level == 0) {
+                this.projectOnSegment(child, x, y, projection);
+            } else {
+                this.searchNode(level - 1, child, x, y, projection);
+            }
+        }
+    }
+}
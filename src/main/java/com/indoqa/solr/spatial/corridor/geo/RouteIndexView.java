@@ -0,0 +1,281 @@
+/*
+ * Licensed to the Indoqa Software Design und Beratung GmbH (Indoqa) under
+ * one or more contributor license agreements. See the NOTICE file distributed
+ * with this work for additional information regarding copyright ownership.
+ * Indoqa licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.indoqa.solr.spatial.corridor.geo;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.apache.lucene.util.BytesRef;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.geom.impl.PackedCoordinateSequence;
+
+/**
+ * A read-only view over a {@link RouteIndex} in the layout of {@link RouteIndex#encode(double...)}: the coordinates, cumulative
+ * lengths and bounding boxes are read in place, nothing is decoded or allocated per route. Projections return the same results
+ * as the {@link RouteIndex}.
+ * <p>
+ * Layout (little endian): format version, vertex count, level count and the node count of each level (ints), padded to 8
+ * bytes; then the x, y and cumulative length of all vertices and the min x, min y, max x and max y of the nodes of each level
+ * (doubles). Optionally followed by the number of simplified routes (int, padded to 8 bytes) and for each of them its error
+ * (double), length (int, padded to 8 bytes) and the simplified route in the same layout.
+ * <p>
+ * Instances are mutable and meant to be reused per thread with {@link #wrap(BytesRef)}.
+ */
+public final class RouteIndexView implements IndexedRoute {
+
+    public static final int FORMAT_VERSION = 1;
+
+    private static final GeometryFactory GEOMETRY_FACTORY = new GeometryFactory();
+    private static final int MAX_LEVELS = 16;
+    static final int MAX_SIMPLIFICATIONS = 8;
+
+    private final int[] levelNodeCounts = new int[MAX_LEVELS];
+    private final int[] levelOffsets = new int[MAX_LEVELS];
+    private final double[] simplificationErrors = new double[MAX_SIMPLIFICATIONS];
+    private final int[] simplificationOffsets = new int[MAX_SIMPLIFICATIONS];
+    private final int[] simplificationLengths = new int[MAX_SIMPLIFICATIONS];
+    private final RouteIndexView[] simplifiedViews = new RouteIndexView[MAX_SIMPLIFICATIONS];
+
+    private byte[] bytes;
+    private ByteBuffer buffer;
+
+    private int vertexCount;
+    private int segmentCount;
+    private int levels;
+    private int xsOffset;
+    private int ysOffset;
+    private int cumulativeLengthsOffset;
+    private int simplificationCount;
+
+    static int getHeaderLength(int levels) {
+        int length = (3 + levels) * Integer.BYTES;
+        return (length + Double.BYTES - 1) / Double.BYTES * Double.BYTES;
+    }
+
+    @Override
+    public LineString getLineString() {
+        double[] coordinates = new double[this.vertexCount * 2];
+
+        for (int i = 0; i < this.vertexCount; i++) {
+            coordinates[i * 2] = this.getX(i);
+            coordinates[i * 2 + 1] = this.getY(i);
+        }
+
+        return GEOMETRY_FACTORY.createLineString(new PackedCoordinateSequence.Double(coordinates, 2, 0));
+    }
+
+    @Override
+    public double getPlanarPosition(RouteProjection projection) {
+        int segmentIndex = projection.getSegmentIndex();
+        return this.getDouble(this.cumulativeLengthsOffset, segmentIndex)
+            + projection.getSegmentFraction() * this.getSegmentLength(segmentIndex);
+    }
+
+    @Override
+    public int getSegmentCount() {
+        return this.segmentCount;
+    }
+
+    @Override
+    public int getSimplificationCount() {
+        return this.simplificationCount;
+    }
+
+    @Override
+    public double getSimplificationError(int level) {
+        this.checkSimplification(level);
+        return this.simplificationErrors[level];
+    }
+
+    @Override
+    public IndexedRoute getSimplified(int level) {
+        this.checkSimplification(level);
+
+        if (this.simplifiedViews[level] == null) {
+            this.simplifiedViews[level] = new RouteIndexView();
+        }
+        return this.simplifiedViews[level].wrap(this.bytes, this.simplificationOffsets[level], this.simplificationLengths[level]);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return this.segmentCount == 0;
+    }
+
+    @Override
+    public boolean project(double x, double y, RouteProjection projection) {
+        projection.reset();
+
+        if (this.isEmpty()) {
+            return false;
+        }
+
+        int topLevel = this.levels - 1;
+        for (int node = 0; node < this.levelNodeCounts[topLevel]; node++) {
+            this.searchNode(topLevel, node, x, y, projection);
+        }
+
+        return true;
+    }
+
+    /**
+     * Points this view to another encoded route. The bytes must not be modified while the view is used.
+     *
+     * @throws IllegalArgumentException if the bytes are not in the expected format.
+     */
+    public RouteIndexView wrap(BytesRef bytesRef) {
+        return this.wrap(bytesRef.bytes, bytesRef.offset, bytesRef.length);
+    }
+
+    /**
+     * @see #wrap(BytesRef)
+     */
+    public RouteIndexView wrap(byte[] bytes, int offset, int length) {
+        if (bytes != this.bytes) {
+            this.bytes = bytes;
+            this.buffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        if (length < 3 * Integer.BYTES || this.buffer.getInt(offset) != FORMAT_VERSION) {
+            throw new IllegalArgumentException("Unsupported route index format.");
+        }
+
+        this.vertexCount = this.buffer.getInt(offset + Integer.BYTES);
+        this.segmentCount = Math.max(this.vertexCount - 1, 0);
+        this.levels = this.buffer.getInt(offset + 2 * Integer.BYTES);
+        if (this.levels < 1 || this.levels > MAX_LEVELS) {
+            throw new IllegalArgumentException("Invalid number of levels: " + this.levels);
+        }
+
+        this.xsOffset = offset + getHeaderLength(this.levels);
+        this.ysOffset = this.xsOffset + this.vertexCount * Double.BYTES;
+        this.cumulativeLengthsOffset = this.ysOffset + this.vertexCount * Double.BYTES;
+
+        int levelOffset = this.cumulativeLengthsOffset + this.vertexCount * Double.BYTES;
+        for (int level = 0; level < this.levels; level++) {
+            this.levelNodeCounts[level] = this.buffer.getInt(offset + (3 + level) * Integer.BYTES);
+            this.levelOffsets[level] = levelOffset;
+            levelOffset += this.levelNodeCounts[level] * 4 * Double.BYTES;
+        }
+
+        if (levelOffset > offset + length) {
+            throw new IllegalArgumentException("Truncated route index: " + length + " bytes");
+        }
+
+        this.wrapSimplifications(levelOffset, offset + length);
+        return this;
+    }
+
+    private void checkSimplification(int level) {
+        if (level < 0 || level >= this.simplificationCount) {
+            throw new IndexOutOfBoundsException("No simplified route: " + level);
+        }
+    }
+
+    private double getDouble(int offset, int index) {
+        return this.buffer.getDouble(offset + index * Double.BYTES);
+    }
+
+    private double getEnvelopeDistanceSquared(int level, int node, double x, double y) {
+        int nodeCount = this.levelNodeCounts[level];
+        int offset = this.levelOffsets[level];
+
+        double minX = this.getDouble(offset, node);
+        double minY = this.getDouble(offset, nodeCount + node);
+        double maxX = this.getDouble(offset, 2 * nodeCount + node);
+        double maxY = this.getDouble(offset, 3 * nodeCount + node);
+
+        double dx = Math.max(Math.max(minX - x, x - maxX), 0);
+        double dy = Math.max(Math.max(minY - y, y - maxY), 0);
+        return dx * dx + dy * dy;
+    }
+
+    private double getSegmentLength(int segmentIndex) {
+        double dx = this.getX(segmentIndex + 1) - this.getX(segmentIndex);
+        double dy = this.getY(segmentIndex + 1) - this.getY(segmentIndex);
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+
+    private void wrapSimplifications(int offset, int end) {
+        this.simplificationCount = 0;
+        if (offset == end) {
+            return;
+        }
+
+        int count = this.buffer.getInt(offset);
+        if (count < 0 || count > MAX_SIMPLIFICATIONS) {
+            throw new IllegalArgumentException("Invalid number of simplified routes: " + count);
+        }
+
+        int simplificationOffset = offset + 2 * Integer.BYTES;
+        for (int i = 0; i < count; i++) {
+            this.simplificationErrors[i] = this.buffer.getDouble(simplificationOffset);
+            this.simplificationLengths[i] = this.buffer.getInt(simplificationOffset + Double.BYTES);
+            this.simplificationOffsets[i] = simplificationOffset + Double.BYTES + 2 * Integer.BYTES;
+            simplificationOffset = this.simplificationOffsets[i] + this.simplificationLengths[i];
+        }
+
+        if (simplificationOffset > end) {
+            throw new IllegalArgumentException("Truncated simplified routes: " + (end - offset) + " bytes");
+        }
+        this.simplificationCount = count;
+    }
+
+    private double getX(int index) {
+        return this.getDouble(this.xsOffset, index);
+    }
+
+    private double getY(int index) {
+        return this.getDouble(this.ysOffset, index);
+    }
+
+    private void projectOnSegment(int segmentIndex, double x, double y, RouteProjection projection) {
+        double x0 = this.getX(segmentIndex);
+        double y0 = this.getY(segmentIndex);
+        double dx = this.getX(segmentIndex + 1) - x0;
+        double dy = this.getY(segmentIndex + 1) - y0;
+        double lengthSquared = dx * dx + dy * dy;
+
+        // same semantics as LineSegment#segmentFraction: degenerated segments project onto their end point
+        double fraction = lengthSquared > 0 ? RouteIndex.clamp(((x - x0) * dx + (y - y0) * dy) / lengthSquared) : 1;
+        double projectedX = x0 + fraction * dx;
+        double projectedY = y0 + fraction * dy;
+
+        double distanceSquared = (x - projectedX) * (x - projectedX) + (y - projectedY) * (y - projectedY);
+        if (distanceSquared < projection.getDistanceSquared()) {
+            projection.set(segmentIndex, fraction, projectedX, projectedY, distanceSquared);
+        }
+    }
+
+    private void searchNode(int level, int node, double x, double y, RouteProjection projection) {
+        if (this.getEnvelopeDistanceSquared(level, node, x, y) >= projection.getDistanceSquared()) {
+            return;
+        }
+
+        int childCount = level == 0 ? this.segmentCount : this.levelNodeCounts[level - 1];
+        int end = Math.min((node + 1) * RouteIndex.NODE_CAPACITY, childCount);
+
+        for (int child = node * RouteIndex.NODE_CAPACITY; child < end; child++) {
+            if (level == 0) {
+                this.projectOnSegment(child, x, y, projection);
+            } else {
+                this.searchNode(level - 1, child, x, y, projection);
+            }
+        }
+    }
+}
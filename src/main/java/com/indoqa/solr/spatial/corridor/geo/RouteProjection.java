@@ -0,0 +1,65 @@
+/*
+ * Licensed to the Indoqa Software Design und Beratung GmbH (Indoqa) under
+ * one or more contributor license agreements. See the NOTICE file distributed
+ * with this work for additional information regarding copyright ownership.
+ * Indoqa licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.indoqa.solr.spatial.corridor.geo;
+
+/**
+ * Mutable result of {@link RouteIndex#project(double, double, RouteProjection)}. Instances are meant to be reused per thread.
+ */
+public class RouteProjection {
+
+    private int segmentIndex;
+    private double segmentFraction;
+    private double x;
+    private double y;
+    private double distanceSquared;
+
+    public double getDistanceSquared() {
+        return this.distanceSquared;
+    }
+
+    public double getSegmentFraction() {
+        return this.segmentFraction;
+    }
+
+    public int getSegmentIndex() {
+        return this.segmentIndex;
+    }
+
+    public double getX() {
+        return this.x;
+    }
+
+    public double getY() {
+        return this.y;
+    }
+
+    void reset() {
+        this.segmentIndex = -1;
+        this.segmentFraction = 0;
+        this.x = Double.NaN;
+        this.y = Double.NaN;
+        this.distanceSquared = Double.POSITIVE_INFINITY;
+    }
+
+    void set(int segmentIndex, double segmentFraction, double x, double y, double distanceSquared) {
+        this.segmentIndex = segmentIndex;
+        this.segmentFraction = segmentFraction;
+        this.x = x;
+        this.y = y;
+        this.distanceSquared = distanceSquared;
+    }
+}
@@ -17,26 +17,113 @@
 package com.indoqa.solr.spatial.corridor.processor;
 
 import com.indoqa.solr.spatial.corridor.HashGeometry;
+import com.indoqa.solr.spatial.corridor.LineStringCache;
 import com.indoqa.solr.spatial.corridor.LineStringUtils;
+import com.indoqa.solr.spatial.corridor.binary.BinaryLineStringField;
+import com.indoqa.solr.spatial.corridor.binary.BinaryLineStringUtils;
+import com.indoqa.solr.spatial.corridor.geo.CorridorPolygonBuilder;
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.ExponentiallyDecayingReservoir;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.Timer;
 import org.apache.solr.common.SolrException;
 import org.apache.solr.common.SolrInputDocument;
 import org.apache.solr.common.util.NamedList;
+import org.apache.solr.common.util.SolrNamedThreadFactory;
+import org.apache.solr.core.CloseHook;
+import org.apache.solr.core.SolrCore;
+import org.apache.solr.core.SolrInfoBean;
+import org.apache.solr.handler.component.RealTimeGetComponent;
+import org.apache.solr.metrics.SolrMetricsContext;
 import org.apache.solr.request.SolrQueryRequest;
 import org.apache.solr.response.SolrQueryResponse;
+import org.apache.solr.schema.FieldType;
 import org.apache.solr.update.AddUpdateCommand;
+import org.apache.solr.update.CommitUpdateCommand;
+import org.apache.solr.update.DeleteUpdateCommand;
+import org.apache.solr.update.MergeIndexesCommand;
+import org.apache.solr.update.RollbackUpdateCommand;
+import org.apache.solr.update.processor.AtomicUpdateDocumentMerger;
 import org.apache.solr.update.processor.UpdateRequestProcessor;
 import org.apache.solr.update.processor.UpdateRequestProcessorFactory;
+import org.apache.solr.util.plugin.SolrCoreAware;
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.operation.buffer.BufferParameters;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
 
 import static org.apache.solr.common.SolrException.ErrorCode.SERVER_ERROR;
 
-public class LinestringHashUpdateProcessorFactory extends UpdateRequestProcessorFactory {
+/**
+ * Adds the hash, the corridor polygon and optionally the binary encodings of the route of each document.
+ * <p>
+ * The geometry is calculated on the update thread by default. For bulk loading, set <code>threads</code> to calculate the routes
+ * of consecutive documents on a pool: documents are still passed on in the order they were added, at most
+ * <code>maxPendingDocuments</code> (default 16 per thread) are in flight before adding blocks. Errors of a route are thrown by a
+ * later call of the same request (the next add, delete, commit or finish).
+ * <p>
+ * Throughput metrics are registered in the UPDATE category of the core as <code>linestringHash.documents</code> (rates),
+ * <code>linestringHash.compute</code> (time per route), <code>linestringHash.blocked</code> (time waited for pending documents)
+ * and <code>linestringHash.pending</code>, the number of vertices of the corridor polygons as
+ * <code>linestringHash.polygonVertices</code>.
+ * <p>
+ * The corridor polygon is the buffer of the route by <code>radiusInMeters</code>, see {@link CorridorPolygonBuilder} for
+ * <code>bufferQuadrantSegments</code> (default 8), <code>bufferEndCapStyle</code> (round, flat or square),
+ * <code>routeSimplificationInMeters</code>, <code>polygonSimplificationInMeters</code> (default 0, no simplification) and
+ * <code>polygonSimplifier</code> (topologyPreserving or douglasPeucker).
+ * <p>
+ * Atomic updates that set the route to the route already stored (e.g. updates of other fields that resend the whole document)
+ * do not calculate the hash and the polygon again: the hash of the route is compared to the stored hash (read by real time get,
+ * only the hash and the polygon fields) and these fields of the stored document are kept. The binary fields are encoded from
+ * the cached route. These updates are counted as <code>linestringHash.unchanged</code>. Set
+ * <code>skipUnchangedRoutes</code> to false to calculate the fields of all atomic updates. The stored document is read before
+ * the update reaches the DistributedUpdateProcessor, i.e. outside of its version lock: if two concurrent updates of the same
+ * document set different routes, the route of one can be stored with the hash and polygon of the other. Disable
+ * <code>skipUnchangedRoutes</code> if the same document is updated concurrently.
+ */
+public class LinestringHashUpdateProcessorFactory extends UpdateRequestProcessorFactory implements SolrCoreAware {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LinestringHashUpdateProcessorFactory.class);
+
+    private static final int DEFAULT_PENDING_DOCUMENTS_PER_THREAD = 16;
+    private static final long THREAD_KEEP_ALIVE_SECONDS = 60;
+    private static final String METRICS_SCOPE = "linestringHash";
 
     private String linestringFieldName = null;
     private String hashFieldName = null;
     private String linestringPolygonName = null;
     private Integer radiusInMeters = null;
+    private String linestringBinaryFieldName = null;
+    private String routeGeometryFieldName = null;
+    private int threads = 0;
+    private int maxPendingDocuments = 0;
+    private CorridorPolygonBuilder corridorPolygonBuilder = CorridorPolygonBuilder.DEFAULT;
+    private boolean skipUnchangedRoutes = true;
+
+    private ExecutorService executor;
+    private Meter documents = new Meter();
+    private Timer computeTimer = new Timer();
+    private Timer blockedTimer = new Timer();
+    private Counter pendingDocuments = new Counter();
+    private Meter unchangedRoutes = new Meter();
+    private Histogram polygonVertices = new Histogram(new ExponentiallyDecayingReservoir());
 
     @Override
     public void init(NamedList args) {
@@ -72,6 +159,69 @@ public class LinestringHashUpdateProcessorFactory extends UpdateRequestProcessor
             radiusInMeters = (Integer) obj;
         }
 
+        obj = args.remove("linestringBinaryFieldName");
+        if (null != obj) {
+            linestringBinaryFieldName = obj.toString();
+        }
+
+        obj = args.remove("routeGeometryFieldName");
+        if (null != obj) {
+            routeGeometryFieldName = obj.toString();
+        }
+
+        int quadrantSegments = BufferParameters.DEFAULT_QUADRANT_SEGMENTS;
+        obj = args.remove("bufferQuadrantSegments");
+        if (null != obj) {
+            quadrantSegments = Integer.parseInt(obj.toString());
+        }
+
+        int endCapStyle = BufferParameters.CAP_ROUND;
+        obj = args.remove("bufferEndCapStyle");
+        if (null != obj) {
+            endCapStyle = CorridorPolygonBuilder.parseEndCapStyle(obj.toString());
+        }
+
+        double routeToleranceInMeters = 0;
+        obj = args.remove("routeSimplificationInMeters");
+        if (null != obj) {
+            routeToleranceInMeters = Double.parseDouble(obj.toString());
+        }
+
+        double polygonToleranceInMeters = 0;
+        obj = args.remove("polygonSimplificationInMeters");
+        if (null != obj) {
+            polygonToleranceInMeters = Double.parseDouble(obj.toString());
+        }
+
+        CorridorPolygonBuilder.Simplifier polygonSimplifier = CorridorPolygonBuilder.Simplifier.TOPOLOGY_PRESERVING;
+        obj = args.remove("polygonSimplifier");
+        if (null != obj) {
+            polygonSimplifier = CorridorPolygonBuilder.Simplifier.parse(obj.toString());
+        }
+
+        try {
+            corridorPolygonBuilder = new CorridorPolygonBuilder(quadrantSegments, endCapStyle, routeToleranceInMeters,
+                    polygonToleranceInMeters, polygonSimplifier);
+        } catch (IllegalArgumentException e) {
+            throw new SolrException(SERVER_ERROR, e.getMessage(), e);
+        }
+
+        obj = args.remove("skipUnchangedRoutes");
+        if (null != obj) {
+            skipUnchangedRoutes = Boolean.parseBoolean(obj.toString());
+        }
+
+        obj = args.remove("threads");
+        if (null != obj) {
+            threads = Integer.parseInt(obj.toString());
+        }
+
+        obj = args.remove("maxPendingDocuments");
+        maxPendingDocuments = null == obj ? threads * DEFAULT_PENDING_DOCUMENTS_PER_THREAD : Integer.parseInt(obj.toString());
+        if (threads > 0 && maxPendingDocuments < 1) {
+            throw new SolrException(SERVER_ERROR, "'maxPendingDocuments' must be positive");
+        }
+
         if (0 < args.size()) {
             throw new SolrException(SERVER_ERROR,
                     "Unexpected init param(s): '" +
@@ -84,9 +234,46 @@ public class LinestringHashUpdateProcessorFactory extends UpdateRequestProcessor
     @Override
     public UpdateRequestProcessor getInstance(SolrQueryRequest req, SolrQueryResponse rsp, UpdateRequestProcessor next) {
         return new LinestringHashUpdateProcessor(this.linestringFieldName, this.hashFieldName, this.linestringPolygonName,
-                this.radiusInMeters, next);
+                this.radiusInMeters, this.linestringBinaryFieldName, this.routeGeometryFieldName,
+                LineStringUtils.getLineStringCache(req.getCore()), next);
     }
 
+    @Override
+    public void inform(SolrCore core) {
+        SolrMetricsContext metricsContext = core.getSolrMetricsContext();
+        if (metricsContext != null) {
+            String category = SolrInfoBean.Category.UPDATE.toString();
+            this.documents = metricsContext.meter(null, "documents", category, METRICS_SCOPE);
+            this.computeTimer = metricsContext.timer(null, "compute", category, METRICS_SCOPE);
+            this.blockedTimer = metricsContext.timer(null, "blocked", category, METRICS_SCOPE);
+            this.pendingDocuments = metricsContext.counter(null, "pending", category, METRICS_SCOPE);
+            this.unchangedRoutes = metricsContext.meter(null, "unchanged", category, METRICS_SCOPE);
+            this.polygonVertices = metricsContext.histogram(null, "polygonVertices", category, METRICS_SCOPE);
+        }
+
+        if (this.threads <= 0) {
+            return;
+        }
+
+        // idle threads terminate, the pool is shut down with the core
+        ThreadPoolExecutor threadPoolExecutor = new ThreadPoolExecutor(this.threads, this.threads, THREAD_KEEP_ALIVE_SECONDS,
+                TimeUnit.SECONDS, new LinkedBlockingQueue<>(), new SolrNamedThreadFactory("linestringHash"));
+        threadPoolExecutor.allowCoreThreadTimeOut(true);
+        this.executor = threadPoolExecutor;
+
+        core.addCloseHook(new CloseHook() {
+
+            @Override
+            public void postClose(SolrCore closedCore) {
+                // nothing to do
+            }
+
+            @Override
+            public void preClose(SolrCore closingCore) {
+                threadPoolExecutor.shutdownNow();
+            }
+        });
+    }
 
     private class LinestringHashUpdateProcessor
             extends UpdateRequestProcessor {
@@ -94,37 +281,268 @@ public class LinestringHashUpdateProcessorFactory extends UpdateRequestProcessor
         final String linestringFieldName;
         final String hashFieldName;
         final String linestringPolygonName;
+        final String linestringBinaryFieldName;
+        final String routeGeometryFieldName;
         private Integer radiusInMeters;
+        // the routes are parsed into the cache of the core, so queries of the same core find them
+        private final LineStringCache lineStringCache;
+        private final Set<String> keptFieldNames = new HashSet<>();
+
+        private final ArrayDeque<PendingAdd> pendingAdds = new ArrayDeque<>();
+        private final long start = System.nanoTime();
+        private long addedDocuments;
 
         public LinestringHashUpdateProcessor(final String linestringFieldName,
                                              final String hashFieldName,
                                              final String linestringPolygonName,
                                              final Integer radiusInMeters,
+                                             final String linestringBinaryFieldName,
+                                             final String routeGeometryFieldName,
+                                             final LineStringCache lineStringCache,
                                              final UpdateRequestProcessor next) {
             super(next);
             this.linestringFieldName = linestringFieldName;
             this.hashFieldName = hashFieldName;
             this.radiusInMeters = radiusInMeters;
             this.linestringPolygonName = linestringPolygonName;
+            this.linestringBinaryFieldName = linestringBinaryFieldName;
+            this.routeGeometryFieldName = routeGeometryFieldName;
+            this.lineStringCache = lineStringCache;
+
+            // the binary doc values are not carried over by the atomic update, they are always encoded again
+            this.keptFieldNames.add(hashFieldName);
+            this.keptFieldNames.add(linestringPolygonName);
+        }
+
+        @Override
+        public void finish() throws IOException {
+            this.flush();
+
+            if (executor != null && this.addedDocuments > 0) {
+                long timeNanos = System.nanoTime() - this.start;
+                LOGGER.info("Processed routes. | documents={}, timeMillis={}, documentsPerSecond={}", this.addedDocuments,
+                        TimeUnit.NANOSECONDS.toMillis(timeNanos), this.addedDocuments * TimeUnit.SECONDS.toNanos(1) / Math.max(timeNanos, 1));
+            }
+
+            super.finish();
         }
 
         @Override
         public void processAdd(AddUpdateCommand cmd) throws IOException {
             final SolrInputDocument doc = cmd.getSolrInputDocument();
+            this.addedDocuments++;
+            documents.mark();
+
+            if (skipUnchangedRoutes && AtomicUpdateDocumentMerger.isAtomicUpdate(cmd)) {
+                // the stored document has to include the pending documents of this request
+                this.flush();
+                this.addFields(doc, this.calculateAtomicUpdateFields(cmd));
+                super.processAdd(cmd);
+                return;
+            }
 
-            if (doc.containsKey(this.linestringFieldName)) {
-                if (!doc.containsKey(this.hashFieldName) || !doc.containsKey(this.linestringPolygonName)) {
-                    HashGeometry hashGeometry = calculateHash(doc.getFieldValue(linestringFieldName));
-                    doc.addField(this.hashFieldName, hashGeometry.getHash());
-                    doc.addField(this.linestringPolygonName, hashGeometry.getGeometry());
+            if (executor == null) {
+                this.addFields(doc, this.calculateFields(cmd.getReq(), doc));
+                super.processAdd(cmd);
+                return;
+            }
+
+            // request handlers reuse their command for the next document, so a copy is kept until it is passed on
+            AddUpdateCommand pendingCmd = (AddUpdateCommand) cmd.clone();
+            Future<Map<String, Object>> fields = this.isMissingFields(doc, doc::containsKey)
+                    ? executor.submit(() -> this.calculateFields(pendingCmd.getReq(), doc))
+                    : CompletableFuture.completedFuture(Collections.emptyMap());
+
+            this.pendingAdds.add(new PendingAdd(pendingCmd, fields));
+            pendingDocuments.inc();
+            this.processCompleted();
+        }
+
+        @Override
+        public void processCommit(CommitUpdateCommand cmd) throws IOException {
+            this.flush();
+            super.processCommit(cmd);
+        }
+
+        @Override
+        public void processDelete(DeleteUpdateCommand cmd) throws IOException {
+            this.flush();
+            super.processDelete(cmd);
+        }
+
+        @Override
+        public void processMergeIndexes(MergeIndexesCommand cmd) throws IOException {
+            this.flush();
+            super.processMergeIndexes(cmd);
+        }
+
+        @Override
+        public void processRollback(RollbackUpdateCommand cmd) throws IOException {
+            this.flush();
+            super.processRollback(cmd);
+        }
+
+        @Override
+        protected void doClose() {
+            for (PendingAdd pendingAdd : this.pendingAdds) {
+                pendingAdd.fields.cancel(true);
+                pendingDocuments.dec();
+            }
+            this.pendingAdds.clear();
+
+            super.doClose();
+        }
+
+        private void addFields(SolrInputDocument doc, Map<String, Object> fields) {
+            for (Map.Entry<String, Object> field : fields.entrySet()) {
+                doc.addField(field.getKey(), field.getValue());
+            }
+        }
+
+        private Map<String, Object> calculateAtomicUpdateFields(AddUpdateCommand cmd) throws IOException {
+            SolrInputDocument doc = cmd.getSolrInputDocument();
+            String route = this.getRoute(doc);
+            if (route == null) {
+                return Collections.emptyMap();
+            }
+
+            // only the fields that are kept, the stored route is not needed to compare the hash
+            SolrInputDocument storedDoc = RealTimeGetComponent.getInputDocument(cmd.getReq().getCore(), cmd.getIndexedId(),
+                    cmd.getIndexedId(), null, this.keptFieldNames, RealTimeGetComponent.Resolution.DOC);
+            if (storedDoc == null || !this.isStoredHash(storedDoc.getFieldValue(this.hashFieldName), route)) {
+                return this.calculateFields(cmd.getReq(), doc);
+            }
+
+            unchangedRoutes.mark();
+            return this.calculateFields(cmd.getReq(), doc, fieldName -> doc.containsKey(fieldName) || storedDoc.containsKey(fieldName));
+        }
+
+        private Map<String, Object> calculateFields(SolrQueryRequest req, SolrInputDocument doc) {
+            return this.calculateFields(req, doc, doc::containsKey);
+        }
+
+        private Map<String, Object> calculateFields(SolrQueryRequest req, SolrInputDocument doc, Predicate<String> isPresent) {
+            if (!this.isMissingFields(doc, isPresent)) {
+                return Collections.emptyMap();
+            }
+
+            Map<String, Object> result = new LinkedHashMap<>();
+
+            try (Timer.Context ignored = computeTimer.time()) {
+                String route = this.getRoute(doc);
+                LineString lineString;
+
+                if (isPresent.test(this.linestringPolygonName)) {
+                    lineString = LineStringUtils.parseOrGet(route, null, this.lineStringCache);
+                } else {
+                    HashGeometry hashGeometry = calculateHash(route);
+                    result.put(this.linestringPolygonName, hashGeometry.getGeometry());
+                    polygonVertices.update(hashGeometry.getGeometryVertexCount());
+                    lineString = hashGeometry.getLineString();
+                }
+
+                if (!isPresent.test(this.hashFieldName)) {
+                    result.put(this.hashFieldName, LineStringUtils.calculateHash(route));
+                }
+                if (this.isMissing(isPresent, this.linestringBinaryFieldName)) {
+                    result.put(this.linestringBinaryFieldName, encode(req, this.linestringBinaryFieldName, lineString));
+                }
+                if (this.isMissing(isPresent, this.routeGeometryFieldName)) {
+                    result.put(this.routeGeometryFieldName, encode(req, this.routeGeometryFieldName, lineString));
                 }
             }
 
-            super.processAdd(cmd);
+            return result;
         }
 
-        private HashGeometry calculateHash(Object fieldValue) {
-            return LineStringUtils.cacheLineStringGetHashGeometry(fieldValue.toString(), this.radiusInMeters);
+        private byte[] encode(SolrQueryRequest req, String fieldName, LineString lineString) {
+            // each field type encodes the route in its own format (BinaryLineStringField or RouteGeometryField)
+            FieldType fieldType = req.getSchema().getField(fieldName).getType();
+            if (fieldType instanceof BinaryLineStringField) {
+                return ((BinaryLineStringField) fieldType).encode(lineString);
+            }
+
+            return BinaryLineStringUtils.encode(lineString);
+        }
+
+        private void flush() throws IOException {
+            while (!this.pendingAdds.isEmpty()) {
+                this.processNext();
+            }
+        }
+
+        private String getRoute(SolrInputDocument doc) {
+            Object value = doc.getFieldValue(this.linestringFieldName);
+
+            // the new value of an atomic update
+            if (value instanceof Map) {
+                value = ((Map<?, ?>) value).get("set");
+            }
+
+            return value == null ? null : value.toString();
+        }
+
+        private boolean isMissing(Predicate<String> isPresent, String fieldName) {
+            return fieldName != null && !isPresent.test(fieldName);
+        }
+
+        private boolean isMissingFields(SolrInputDocument doc, Predicate<String> isPresent) {
+            return this.getRoute(doc) != null
+                    && (!isPresent.test(this.hashFieldName) || !isPresent.test(this.linestringPolygonName)
+                    || this.isMissing(isPresent, this.linestringBinaryFieldName) || this.isMissing(isPresent, this.routeGeometryFieldName));
+        }
+
+        private boolean isStoredHash(Object storedHash, String route) {
+            return storedHash instanceof Number && ((Number) storedHash).longValue() == LineStringUtils.calculateHash(route);
+        }
+
+        private void processCompleted() throws IOException {
+            while (!this.pendingAdds.isEmpty() && this.pendingAdds.peek().fields.isDone()) {
+                this.processNext();
+            }
+
+            if (this.pendingAdds.size() > maxPendingDocuments) {
+                try (Timer.Context ignored = blockedTimer.time()) {
+                    while (this.pendingAdds.size() > maxPendingDocuments) {
+                        this.processNext();
+                    }
+                }
+            }
+        }
+
+        private void processNext() throws IOException {
+            PendingAdd pendingAdd = this.pendingAdds.remove();
+            pendingDocuments.dec();
+
+            try {
+                this.addFields(pendingAdd.cmd.getSolrInputDocument(), pendingAdd.fields.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SolrException(SERVER_ERROR, "Interrupted while calculating the route of " + pendingAdd.cmd.getPrintableId(), e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw new SolrException(SERVER_ERROR, "Could not calculate the route of " + pendingAdd.cmd.getPrintableId(), e.getCause());
+            }
+
+            super.processAdd(pendingAdd.cmd);
+        }
+
+        private HashGeometry calculateHash(String route) {
+            return LineStringUtils.cacheLineStringGetHashGeometry(route, this.radiusInMeters,
+                    corridorPolygonBuilder, this.lineStringCache);
+        }
+    }
+
+    private static final class PendingAdd {
+
+        private final AddUpdateCommand cmd;
+        private final Future<Map<String, Object>> fields;
+
+        PendingAdd(AddUpdateCommand cmd, Future<Map<String, Object>> fields) {
+            this.cmd = cmd;
+            this.fields = fields;
         }
     }
 }
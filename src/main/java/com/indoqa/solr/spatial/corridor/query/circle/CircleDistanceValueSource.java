@@ -19,41 +19,108 @@ package com.indoqa.solr.spatial.corridor.query.circle;
 import static com.indoqa.solr.spatial.corridor.CorridorConstants.WGS84_TO_KILOMETERS_FACTOR;
 
 import java.util.List;
+import java.util.stream.Collectors;
 
+import com.indoqa.solr.spatial.corridor.geo.GeoUtils;
+import com.indoqa.solr.spatial.corridor.geo.IndexedRoute;
+import com.indoqa.solr.spatial.corridor.geo.RouteIndex;
+import com.indoqa.solr.spatial.corridor.geo.RouteProjection;
 import com.indoqa.solr.spatial.corridor.query.points.AbstractPointsQueryCorridorValueSource;
+import com.indoqa.solr.spatial.corridor.wkt.WktUtils;
 import org.apache.lucene.queries.function.ValueSource;
 import org.locationtech.jts.geom.LineString;
 import org.locationtech.jts.geom.Point;
 
+/**
+ * The distance of a route to the nearest of the query circles, 0 if it enters a circle: max(0, distance to the center - radius),
+ * calculated directly from the projection of the center onto the route.
+ * <p>
+ * By default, the radius is in degrees and the distance is the planar distance in degrees times the length of a degree at the
+ * equator. In geodesic mode, the radius is in kilometers and subtracted from the geodesic distance.
+ */
 public class CircleDistanceValueSource extends AbstractPointsQueryCorridorValueSource {
 
     private final Double radius;
+    private final boolean geodesic;
 
     protected CircleDistanceValueSource(Double radius, List<Point> queryPoints, ValueSource routeValueSource,
+        ValueSource routeHashValueSource) {
+        this(radius, false, queryPoints, routeValueSource, routeHashValueSource);
+    }
+
+    protected CircleDistanceValueSource(Double radius, boolean geodesic, List<Point> queryPoints, ValueSource routeValueSource,
         ValueSource routeHashValueSource) {
         super(queryPoints, routeValueSource, routeHashValueSource);
         this.radius = radius;
+        this.geodesic = geodesic;
     }
 
     @Override
     public String description() {
-        return "circleDistance()";
+        return this.geodesic ? "circleDistance(" + this.radius + " km)" : "circleDistance(" + this.radius + ")";
     }
 
     @Override
-    protected double getValue(LineString lineString) {
-        if (lineString.isEmpty()) {
+    public List<String> getQueryShapes() {
+        return this.getQueryPoints()
+            .stream()
+            .map(point -> "BUFFER(" + WktUtils.toPointWkt(point) + ", " + this.getRadiusInDegrees(point) + ")")
+            .collect(Collectors.toList());
+    }
+
+    public boolean isGeodesic() {
+        return this.geodesic;
+    }
+
+    @Override
+    protected double getValue(IndexedRoute route) {
+        if (route.isEmpty()) {
             return Integer.MAX_VALUE;
         }
 
+        RouteProjection projection = new RouteProjection();
+
         double minDistance = Integer.MAX_VALUE;
 
-        double distance;
         for (Point point : this.getQueryPoints()) {
-            distance = lineString.distance(point.buffer(radius)) * WGS84_TO_KILOMETERS_FACTOR;
-            minDistance = Math.min(distance, minDistance);
+            route.project(point.getX(), point.getY(), projection);
+
+            double distance;
+            if (this.geodesic) {
+                distance = GeoUtils.calculateDistanceInKilometers(projection.getX(), projection.getY(), point.getX(), point.getY())
+                    - this.radius;
+            } else {
+                distance = (Math.sqrt(projection.getDistanceSquared()) - this.radius) * WGS84_TO_KILOMETERS_FACTOR;
+            }
+
+            minDistance = Math.min(Math.max(distance, 0), minDistance);
         }
 
         return minDistance;
     }
+
+    @Override
+    protected double getValue(LineString lineString) {
+        if (lineString.isEmpty()) {
+            return Integer.MAX_VALUE;
+        }
+
+        return this.getValue(new RouteIndex(lineString));
+    }
+
+    @Override
+    protected boolean isRouteIndexCached() {
+        return true;
+    }
+
+    private double getRadiusInDegrees(Point point) {
+        if (!this.geodesic) {
+            return this.radius;
+        }
+
+        // the circle in degrees must contain the geodesic circle, which is widest in longitude
+        double latitudeDelta = GeoUtils.getLatitudeDelta(this.radius);
+        double longitudeDelta = GeoUtils.getLongitudeDelta(this.radius, Math.min(Math.abs(point.getY()) + latitudeDelta, 90));
+        return Math.min(Math.max(latitudeDelta, longitudeDelta), 180);
+    }
 }
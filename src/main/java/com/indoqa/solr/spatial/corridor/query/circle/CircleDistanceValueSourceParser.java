@@ -47,6 +47,19 @@ public class CircleDistanceValueSourceParser extends ValueSourceParser {
             queryPoints.add(WktUtils.parsePoint(queryPointParameter));
         }
 
-        return new CircleDistanceValueSource(radius, queryPoints, new LineStringValueSource(fp.parseArg()), fp.parseValueSource());
+        boolean geodesic = parseGeodesic(fp.getParam("corridor.circle.distance"));
+        return new CircleDistanceValueSource(radius, geodesic, queryPoints, LineStringValueSource.parse(fp), fp.parseValueSource());
+    }
+
+    private static boolean parseGeodesic(String value) throws SyntaxError {
+        if (value == null || "planar".equalsIgnoreCase(value.trim())) {
+            return false;
+        }
+
+        if ("geodesic".equalsIgnoreCase(value.trim())) {
+            return true;
+        }
+
+        throw new SyntaxError("Unknown circle distance '" + value + "', expected planar or geodesic");
     }
 }
@@ -19,8 +19,15 @@ package com.indoqa.solr.spatial.corridor.query.points;
 import java.io.IOException;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 import com.indoqa.solr.spatial.corridor.LineStringUtils;
+import com.indoqa.solr.spatial.corridor.QueryShapeProvider;
+import com.indoqa.solr.spatial.corridor.RouteIndexCache;
+import com.indoqa.solr.spatial.corridor.SegmentLineStringCache;
+import com.indoqa.solr.spatial.corridor.geo.IndexedRoute;
+import com.indoqa.solr.spatial.corridor.geo.RouteIndex;
+import com.indoqa.solr.spatial.corridor.wkt.WktUtils;
 import org.apache.commons.lang3.ObjectUtils;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.queries.function.FunctionValues;
@@ -32,7 +39,7 @@ import org.locationtech.jts.geom.Point;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public abstract class AbstractPointsQueryCorridorValueSource extends ValueSource {
+public abstract class AbstractPointsQueryCorridorValueSource extends ValueSource implements QueryShapeProvider {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(AbstractPointsQueryCorridorValueSource.class);
 
@@ -73,12 +80,27 @@ public abstract class AbstractPointsQueryCorridorValueSource extends ValueSource
         return this.queryPoints;
     }
 
+    /**
+     * @return a value source for filtering by [lowerBound, upperBound]: values within these bounds are exact, values outside
+     * may be any value outside the bounds, if this allows a cheaper calculation. Returns this value source by default.
+     */
+    public AbstractPointsQueryCorridorValueSource withBounds(double lowerBound, double upperBound) {
+        return this;
+    }
+
+    @Override
+    public List<String> getQueryShapes() {
+        return this.queryPoints.stream().map(WktUtils::toPointWkt).collect(Collectors.toList());
+    }
+
     @SuppressWarnings("rawtypes")
     @Override
     public final FunctionValues getValues(Map context, LeafReaderContext readerContext) throws IOException {
-        FunctionValues locationValues = this.routeValueSource.getValues(context, readerContext);
         FunctionValues hashValues = this.routeHashValueSource.getValues(context, readerContext);
-        return new InverseCorridorDocValues(this, locationValues, hashValues);
+        FunctionValues locationValues = SegmentLineStringCache.cached(context, this.routeValueSource,
+            this.routeValueSource.getValues(context, readerContext), hashValues, readerContext);
+        RouteIndexCache routeIndexCache = this.isRouteIndexCached() ? RouteIndexCache.forContext(context) : null;
+        return new InverseCorridorDocValues(this, locationValues, hashValues, routeIndexCache);
     }
 
     @Override
@@ -91,36 +113,115 @@ public abstract class AbstractPointsQueryCorridorValueSource extends ValueSource
         return result;
     }
 
+    /**
+     * Calculates the value for a route with precomputed geometry. The default materializes the {@link LineString}, subclasses
+     * should use the projection of the {@link IndexedRoute} instead.
+     */
+    protected double getValue(IndexedRoute route) {
+        return this.getValue(route.getLineString());
+    }
+
     protected abstract double getValue(LineString lineString);
 
+    /**
+     * @return the value for {@link FunctionValues#objectVal(int)}, by default the boxed {@link #getValue(IndexedRoute)}.
+     */
+    protected Object getObjectValue(IndexedRoute route) {
+        return this.getValue(route);
+    }
+
+    /**
+     * @return the value for {@link FunctionValues#objectVal(int)}, by default the boxed {@link #getValue(LineString)}.
+     */
+    protected Object getObjectValue(LineString lineString) {
+        return this.getValue(lineString);
+    }
+
+    /**
+     * @return <code>true</code> if stored routes without precomputed geometry are passed to {@link #getValue(IndexedRoute)} as
+     * the {@link RouteIndex} cached for the route in the {@link RouteIndexCache} of the core, <code>false</code> (default) if
+     * they are passed to {@link #getValue(LineString)}.
+     */
+    protected boolean isRouteIndexCached() {
+        return false;
+    }
+
+    protected ValueSource getRouteHashValueSource() {
+        return this.routeHashValueSource;
+    }
+
+    protected ValueSource getRouteValueSource() {
+        return this.routeValueSource;
+    }
+
     private final class InverseCorridorDocValues extends DoubleDocValues {
 
         private FunctionValues routeValues;
         private FunctionValues hashValues;
+        private RouteIndexCache routeIndexCache;
 
-        protected InverseCorridorDocValues(ValueSource vs, FunctionValues routeValues, FunctionValues hashValues) {
+        protected InverseCorridorDocValues(ValueSource vs, FunctionValues routeValues, FunctionValues hashValues,
+                RouteIndexCache routeIndexCache) {
             super(vs);
 
             this.routeValues = routeValues;
             this.hashValues = hashValues;
+            this.routeIndexCache = routeIndexCache;
         }
 
         @Override
         public double doubleVal(int docId) throws IOException {
-            String routeAsString = this.routeValues.strVal(docId);
-            String routeAsHash = this.hashValues.strVal(docId);
+            try{
+                Object route = this.getRoute(docId);
+                if (route instanceof IndexedRoute) {
+                    return AbstractPointsQueryCorridorValueSource.this.getValue((IndexedRoute) route);
+                }
+
+                if (route == null) {
+                    return Double.MAX_VALUE;
+                }
+
+                return AbstractPointsQueryCorridorValueSource.this.getValue((LineString) route);
+            }catch(Exception e){
+                LOGGER.error("Could not calculate value. | docId={}", docId, e);
+            }
+            return Double.MAX_VALUE;
+        }
 
+        @Override
+        public Object objectVal(int docId) throws IOException {
             try{
-                if (routeAsString == null || routeAsString.isEmpty()) {
+                Object route = this.getRoute(docId);
+                if (route instanceof IndexedRoute) {
+                    return AbstractPointsQueryCorridorValueSource.this.getObjectValue((IndexedRoute) route);
+                }
+
+                if (route == null) {
                     return Double.MAX_VALUE;
                 }
 
-                LineString route = LineStringUtils.parseOrGet(routeAsString, routeAsHash);
-                return AbstractPointsQueryCorridorValueSource.this.getValue(route);
+                return AbstractPointsQueryCorridorValueSource.this.getObjectValue((LineString) route);
             }catch(Exception e){
-                LOGGER.error("Could not calculate value. | linestring={}", routeAsString, e);
+                LOGGER.error("Could not calculate value. | docId={}", docId, e);
             }
             return Double.MAX_VALUE;
         }
+
+        /**
+         * @return the route as {@link IndexedRoute} or {@link LineString}, <code>null</code> if the document has no route.
+         */
+        private Object getRoute(int docId) throws IOException {
+            Object value = this.routeValues.objectVal(docId);
+            if (value instanceof IndexedRoute) {
+                return value;
+            }
+
+            LineString lineString = LineStringUtils.toLineString(value, this.hashValues, docId);
+            if (lineString == null || this.routeIndexCache == null) {
+                return lineString;
+            }
+
+            return this.routeIndexCache.get(lineString);
+        }
     }
 }
@@ -40,7 +40,7 @@ public abstract class AbstractPointsQueryCorridorValueSourceParser extends Value
             queryPoints.add(WktUtils.parsePoint(queryPointParameter));
         }
 
-        return this.createValueSource(queryPoints, new LineStringValueSource(fp.parseArg()), fp.parseValueSource());
+        return this.createValueSource(queryPoints, LineStringValueSource.parse(fp), fp.parseValueSource());
     }
 
     protected abstract ValueSource createValueSource(List<Point> queryPoints, ValueSource locationValueSource,
@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Indoqa Software Design und Beratung GmbH (Indoqa) under
+ * one or more contributor license agreements. See the NOTICE file distributed
+ * with this work for additional information regarding copyright ownership.
+ * Indoqa licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.indoqa.solr.spatial.corridor.query.points;
+
+import com.indoqa.solr.spatial.corridor.CorridorRangeQuery;
+import com.indoqa.solr.spatial.corridor.QueryShapeProvider;
+import org.apache.lucene.queries.function.FunctionQuery;
+import org.apache.lucene.queries.function.ValueSource;
+import org.apache.lucene.search.BooleanClause.Occur;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.MatchNoDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.solr.common.params.SolrParams;
+import org.apache.solr.request.SolrQueryRequest;
+import org.apache.solr.schema.AbstractSpatialFieldType;
+import org.apache.solr.schema.SchemaField;
+import org.apache.solr.search.FunctionQParserPlugin;
+import org.apache.solr.search.QParser;
+import org.apache.solr.search.SyntaxError;
+
+public class PointsCorridorQueryParser extends QParser {
+
+    public PointsCorridorQueryParser(String qstr, SolrParams localParams, SolrParams params, SolrQueryRequest req) {
+        super(qstr, localParams, params, req);
+    }
+
+    @Override
+    public Query parse() throws SyntaxError {
+        SchemaField polygonField = this.parsePolygonField();
+        ValueSource valueSource = this.parseValueSource();
+
+        if (!(valueSource instanceof QueryShapeProvider)) {
+            throw new SyntaxError("The function " + valueSource.description() + " has no query points.");
+        }
+
+        double lowerBound = this.parseBound("l", 0);
+        double upperBound = this.parseBound("u", Double.MAX_VALUE);
+        if (valueSource instanceof AbstractPointsQueryCorridorValueSource) {
+            valueSource = ((AbstractPointsQueryCorridorValueSource) valueSource).withBounds(lowerBound, upperBound);
+        }
+
+        Query approximation = this.createApproximation(polygonField, (QueryShapeProvider) valueSource);
+        return new CorridorRangeQuery(approximation, valueSource, lowerBound, upperBound);
+    }
+
+    private Query createApproximation(SchemaField polygonField, QueryShapeProvider queryShapeProvider) {
+        BooleanQuery.Builder builder = new BooleanQuery.Builder();
+        int clauses = 0;
+
+        for (String queryShape : queryShapeProvider.getQueryShapes()) {
+            builder.add(polygonField.getType().getFieldQuery(this, polygonField, "Intersects(" + queryShape + ")"), Occur.SHOULD);
+            clauses++;
+        }
+
+        if (clauses == 0) {
+            return new MatchNoDocsQuery("no query points");
+        }
+        return builder.build();
+    }
+
+    private double parseBound(String name, double defaultValue) throws SyntaxError {
+        String bound = this.getParam(name);
+
+        if (bound == null) {
+            return defaultValue;
+        }
+
+        try {
+            return Double.parseDouble(bound);
+        } catch (NumberFormatException e) {
+            throw new SyntaxError("Parameter '" + name + "' must be a number: " + bound, e);
+        }
+    }
+
+    private SchemaField parsePolygonField() throws SyntaxError {
+        String polygonFieldName = this.getParam("polygonField");
+        if (polygonFieldName == null) {
+            throw new SyntaxError("Parameter 'polygonField' must be specified.");
+        }
+
+        SchemaField polygonField = this.req.getSchema().getField(polygonFieldName);
+        if (!(polygonField.getType() instanceof AbstractSpatialFieldType)) {
+            throw new SyntaxError("Parameter 'polygonField' must be a spatial field: " + polygonFieldName);
+        }
+        return polygonField;
+    }
+
+    private ValueSource parseValueSource() throws SyntaxError {
+        QParser functionParser = this.subQuery(this.qstr, FunctionQParserPlugin.NAME);
+        Query functionQuery = functionParser.getQuery();
+
+        if (!(functionQuery instanceof FunctionQuery)) {
+            throw new SyntaxError("Expected a function: " + this.qstr);
+        }
+        return ((FunctionQuery) functionQuery).getValueSource();
+    }
+}
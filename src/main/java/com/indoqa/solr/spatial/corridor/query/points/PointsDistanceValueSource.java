@@ -19,6 +19,8 @@ package com.indoqa.solr.spatial.corridor.query.points;
 import java.util.List;
 
 import com.indoqa.solr.spatial.corridor.geo.GeoUtils;
+import com.indoqa.solr.spatial.corridor.geo.IndexedRoute;
+import com.indoqa.solr.spatial.corridor.geo.RouteProjection;
 import org.apache.lucene.queries.function.ValueSource;
 
 import org.locationtech.jts.geom.Coordinate;
@@ -29,15 +31,79 @@ import org.locationtech.jts.linearref.LocationIndexedLine;
 
 public class PointsDistanceValueSource extends AbstractPointsQueryCorridorValueSource {
 
+    private final double lowerBound;
+    private final double upperBound;
+
     protected PointsDistanceValueSource(List<Point> queryPoints, ValueSource routeValueSource, ValueSource routeHashValueSource) {
+        this(queryPoints, routeValueSource, routeHashValueSource, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+    }
+
+    private PointsDistanceValueSource(List<Point> queryPoints, ValueSource routeValueSource, ValueSource routeHashValueSource,
+            double lowerBound, double upperBound) {
         super(queryPoints, routeValueSource, routeHashValueSource);
+
+        this.lowerBound = lowerBound;
+        this.upperBound = upperBound;
     }
 
     @Override
     public String description() {
+        if (this.isBounded()) {
+            return "pointsDistance([" + this.lowerBound + " TO " + this.upperBound + "])";
+        }
+
         return "pointsDistance()";
     }
 
+    /**
+     * Simplified versions of a route (see {@link com.indoqa.solr.spatial.corridor.binary.RouteGeometryField}) are evaluated
+     * first, coarsest first. The distance is the geodesic distance to the planar nearest point of the route, which can be far
+     * from the planar nearest point of a simplified version. So only the planar distance to a simplified version is used: it
+     * differs from the planar distance to the route by at most the error, and the geodesic distance to the nearest point is
+     * within the smallest and largest scale of a degree of the planar distance. If these bounds are outside the bounds of the
+     * filter, the distance of the route is outside as well. Only otherwise, the next finer version and finally the route itself
+     * are evaluated.
+     */
+    @Override
+    public AbstractPointsQueryCorridorValueSource withBounds(double lowerBound, double upperBound) {
+        return new PointsDistanceValueSource(this.getQueryPoints(), this.getRouteValueSource(), this.getRouteHashValueSource(),
+            lowerBound, upperBound);
+    }
+
+    @Override
+    protected double getValue(IndexedRoute route) {
+        if (this.isBounded() && !route.isEmpty()) {
+            RouteProjection projection = new RouteProjection();
+
+            for (int level = 0; level < route.getSimplificationCount(); level++) {
+                double error = route.getSimplificationError(level);
+                IndexedRoute simplified = route.getSimplified(level);
+                double maxKilometers = this.upperBound + error;
+
+                double minDistance = Double.POSITIVE_INFINITY;
+                double maxDistance = Double.POSITIVE_INFINITY;
+                for (Point point : this.getQueryPoints()) {
+                    simplified.project(point.getX(), point.getY(), projection);
+                    double planarDistance = Math.sqrt(projection.getDistanceSquared());
+
+                    minDistance =
+                        Math.min(minDistance, GeoUtils.getMinDistanceInKilometers(planarDistance, point.getY(), maxKilometers));
+                    maxDistance = Math.min(maxDistance, GeoUtils.getMaxDistanceInKilometers(planarDistance));
+                }
+
+                if (minDistance - error > this.upperBound) {
+                    return minDistance - error;
+                }
+
+                if (maxDistance + error < this.lowerBound) {
+                    return maxDistance + error;
+                }
+            }
+        }
+
+        return this.getDistance(route);
+    }
+
     @Override
     protected double getValue(LineString lineString) {
         if (lineString.isEmpty()) {
@@ -59,4 +125,28 @@ public class PointsDistanceValueSource extends AbstractPointsQueryCorridorValueS
 
         return minDistance;
     }
+
+    private double getDistance(IndexedRoute route) {
+        if (route.isEmpty()) {
+            return Integer.MAX_VALUE;
+        }
+
+        RouteProjection projection = new RouteProjection();
+
+        double minDistance = Integer.MAX_VALUE;
+
+        for (Point point : this.getQueryPoints()) {
+            route.project(point.getX(), point.getY(), projection);
+
+            double distance = GeoUtils.calculateDistanceInKilometers(projection.getX(), projection.getY(), point.getX(), point.getY());
+
+            minDistance = Math.min(distance, minDistance);
+        }
+
+        return minDistance;
+    }
+
+    private boolean isBounded() {
+        return this.lowerBound != Double.NEGATIVE_INFINITY || this.upperBound != Double.POSITIVE_INFINITY;
+    }
 }
@@ -18,14 +18,16 @@ package com.indoqa.solr.spatial.corridor.query.points;
 
 import static com.indoqa.solr.spatial.corridor.CorridorConstants.WGS84_TO_KILOMETERS_FACTOR;
 
+import java.util.ArrayList;
 import java.util.List;
 
+import com.indoqa.solr.spatial.corridor.geo.IndexedRoute;
+import com.indoqa.solr.spatial.corridor.geo.RouteIndex;
+import com.indoqa.solr.spatial.corridor.geo.RouteProjection;
 import org.apache.lucene.queries.function.ValueSource;
 
 import org.locationtech.jts.geom.LineString;
 import org.locationtech.jts.geom.Point;
-import org.locationtech.jts.linearref.LinearLocation;
-import org.locationtech.jts.linearref.LocationIndexedLine;
 
 public class PointsPositionValueSource extends AbstractPointsQueryCorridorValueSource {
 
@@ -38,21 +40,58 @@ public class PointsPositionValueSource extends AbstractPointsQueryCorridorValueS
         return "pointsPosition()";
     }
 
+    /**
+     * @return the position of the first query point, see {@link #getObjectValue(IndexedRoute)} for all of them.
+     */
+    @Override
+    protected double getValue(IndexedRoute route) {
+        if (route.isEmpty()) {
+            return Double.MAX_VALUE;
+        }
+
+        Point point = this.getQueryPoints().get(0);
+        return getPosition(route, point, new RouteProjection());
+    }
+
     @Override
     protected double getValue(LineString lineString) {
-        try{
-            LocationIndexedLine indexedLineString = new LocationIndexedLine(lineString);
+        return this.getValue(new RouteIndex(lineString));
+    }
 
-            LinearLocation intersection = indexedLineString.project(this.getPoint().getCoordinate());
-            LineString routeToIntersection = (LineString) indexedLineString.extractLine(indexedLineString.getStartIndex(), intersection);
+    /**
+     * @return the positions of all query points (in their order) calculated in one pass, or a single position for a single
+     * query point.
+     */
+    @Override
+    protected Object getObjectValue(IndexedRoute route) {
+        List<Point> queryPoints = this.getQueryPoints();
+        if (queryPoints.size() == 1 || route.isEmpty()) {
+            return this.getValue(route);
+        }
 
-            return routeToIntersection.getLength() * WGS84_TO_KILOMETERS_FACTOR;
-        }catch (IllegalArgumentException e){
-            throw new IllegalArgumentException("IllegalArgument for linestring: " + lineString.toText(), e);
+        RouteProjection projection = new RouteProjection();
+        List<Double> result = new ArrayList<>(queryPoints.size());
+        for (Point point : queryPoints) {
+            result.add(getPosition(route, point, projection));
         }
+        return result;
+    }
+
+    @Override
+    protected Object getObjectValue(LineString lineString) {
+        return this.getObjectValue(new RouteIndex(lineString));
+    }
+
+    /**
+     * Projects stored routes onto the {@link RouteIndex} cached for the route.
+     */
+    @Override
+    protected boolean isRouteIndexCached() {
+        return true;
     }
 
-    private Point getPoint() {
-        return this.getQueryPoints().get(0);
+    private static double getPosition(IndexedRoute route, Point point, RouteProjection projection) {
+        route.project(point.getX(), point.getY(), projection);
+        return route.getPlanarPosition(projection) * WGS84_TO_KILOMETERS_FACTOR;
     }
 }
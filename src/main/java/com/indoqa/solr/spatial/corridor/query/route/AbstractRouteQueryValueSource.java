@@ -19,16 +19,16 @@ package com.indoqa.solr.spatial.corridor.query.route;
 import java.io.IOException;
 import java.util.Map;
 
+import com.indoqa.solr.spatial.corridor.BatchDoubleValues;
+import com.indoqa.solr.spatial.corridor.geo.RouteIndex;
+import com.indoqa.solr.spatial.corridor.geo.RouteProjection;
 import org.apache.commons.lang3.ObjectUtils;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.queries.function.FunctionValues;
 import org.apache.lucene.queries.function.ValueSource;
 import org.apache.lucene.queries.function.docvalues.DoubleDocValues;
 
-import org.locationtech.jts.geom.Coordinate;
-import org.locationtech.jts.geom.GeometryFactory;
 import org.locationtech.jts.geom.LineString;
-import org.locationtech.jts.geom.Point;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -37,10 +37,16 @@ public abstract class AbstractRouteQueryValueSource extends ValueSource {
     private static final Logger LOGGER = LoggerFactory.getLogger(AbstractRouteQueryValueSource.class);
 
     private LineString lineString;
+    private RouteIndex routeIndex;
     private ValueSource loctionValueSource;
 
     protected AbstractRouteQueryValueSource(LineString lineString, ValueSource loctionValueSource) {
+        this(lineString, lineString == null ? null : new RouteIndex(lineString), loctionValueSource);
+    }
+
+    protected AbstractRouteQueryValueSource(LineString lineString, RouteIndex routeIndex, ValueSource loctionValueSource) {
         this.lineString = lineString;
+        this.routeIndex = routeIndex;
         this.loctionValueSource = loctionValueSource;
     }
 
@@ -84,15 +90,80 @@ public abstract class AbstractRouteQueryValueSource extends ValueSource {
         return result;
     }
 
+    protected ValueSource getLocationValueSource() {
+        return this.loctionValueSource;
+    }
+
     protected LineString getLineString() {
         return this.lineString;
     }
 
-    protected abstract double getValue(Point point);
+    protected RouteIndex getRouteIndex() {
+        return this.routeIndex;
+    }
+
+    /**
+     * Calculates the value of one location without allocating, all intermediate results go to the reusable projection.
+     */
+    protected abstract double getValue(double longitude, double latitude, RouteProjection projection);
+
+    /**
+     * Calculates the values of the first <code>count</code> locations of the batch, the same as
+     * {@link #getValue(double, double, RouteProjection)} does for each of them.
+     */
+    protected abstract void getValues(Batch batch, int count, double[] values);
+
+    /**
+     * Reusable arrays of a block of locations and their projections onto the route.
+     */
+    protected static final class Batch {
+
+        private final RouteProjection projection = new RouteProjection();
+
+        private double[] longitudes = new double[0];
+        private double[] latitudes = new double[0];
+        private double[] projectedLongitudes = new double[0];
+        private double[] projectedLatitudes = new double[0];
+
+        public double[] getLatitudes() {
+            return this.latitudes;
+        }
+
+        public double[] getLongitudes() {
+            return this.longitudes;
+        }
+
+        public double[] getProjectedLatitudes() {
+            return this.projectedLatitudes;
+        }
+
+        public double[] getProjectedLongitudes() {
+            return this.projectedLongitudes;
+        }
+
+        public RouteProjection getProjection() {
+            return this.projection;
+        }
 
-    private final class CorridorDocValues extends DoubleDocValues {
+        private void ensureCapacity(int count) {
+            if (this.longitudes.length >= count) {
+                return;
+            }
+
+            this.longitudes = new double[count];
+            this.latitudes = new double[count];
+            this.projectedLongitudes = new double[count];
+            this.projectedLatitudes = new double[count];
+        }
+    }
+
+    private final class CorridorDocValues extends DoubleDocValues implements BatchDoubleValues {
 
         private FunctionValues locationValues;
+        // scratch state of the thread evaluating these values, [latitude, longitude] like the location value sources
+        private final RouteProjection projection = new RouteProjection();
+        private final double[] location = new double[2];
+        private Batch batch;
 
         protected CorridorDocValues(ValueSource vs, FunctionValues locationValues) {
             super(vs);
@@ -103,18 +174,39 @@ public abstract class AbstractRouteQueryValueSource extends ValueSource {
         @Override
         public double doubleVal(int docId) {
             try{
-                double[] values = new double[2];
+                this.locationValues.doubleVal(docId, this.location);
 
-                this.locationValues.doubleVal(docId, values);
-
-                Point point = GeometryFactory.createPointFromInternalCoord(new Coordinate(values[1], values[0]),
-                        AbstractRouteQueryValueSource.this.getLineString());
-                return AbstractRouteQueryValueSource.this.getValue(point);
+                return AbstractRouteQueryValueSource.this.getValue(this.location[1], this.location[0], this.projection);
             }catch (Exception e){
                 LOGGER.error("Could not calculate value.", e);
             }
             return Double.MAX_VALUE;
         }
 
+        @Override
+        public void doubleVals(int[] docIds, int count, double[] values) throws IOException {
+            if (this.batch == null) {
+                this.batch = new Batch();
+            }
+            this.batch.ensureCapacity(count);
+
+            try {
+                double[] longitudes = this.batch.getLongitudes();
+                double[] latitudes = this.batch.getLatitudes();
+
+                for (int i = 0; i < count; i++) {
+                    this.locationValues.doubleVal(docIds[i], this.location);
+                    latitudes[i] = this.location[0];
+                    longitudes[i] = this.location[1];
+                }
+
+                AbstractRouteQueryValueSource.this.getValues(this.batch, count, values);
+            } catch (Exception e) {
+                // let each document report its own error
+                for (int i = 0; i < count; i++) {
+                    values[i] = this.doubleVal(docIds[i]);
+                }
+            }
+        }
     }
 }
@@ -28,13 +28,14 @@ public abstract class AbstractRouteQueryValueSourceParser extends ValueSourcePar
 
     @Override
     public ValueSource parse(FunctionQParser fp) throws SyntaxError {
-        LineString lineString = LineStringUtils.parseOrGet(fp.getParam("corridor.route"), null);
+        LineString lineString = LineStringUtils.parseOrGet(fp.getReq(), fp.getParam("corridor.route"));
         ValueSource locationValueSource = fp.parseValueSource();
 
-        return this.createValueSource(lineString, locationValueSource);
+        return this.createValueSource(fp, lineString, locationValueSource);
     }
 
-    protected abstract ValueSource createValueSource(LineString lineString, ValueSource locationValueSource);
+    protected abstract ValueSource createValueSource(FunctionQParser fp, LineString lineString, ValueSource locationValueSource)
+            throws SyntaxError;
 
     protected abstract String getDescription();
 
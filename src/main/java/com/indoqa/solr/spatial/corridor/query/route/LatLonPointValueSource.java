@@ -0,0 +1,138 @@
+/*
+ * Licensed to the Indoqa Software Design und Beratung GmbH (Indoqa) under
+ * one or more contributor license agreements. See the NOTICE file distributed
+ * with this work for additional information regarding copyright ownership.
+ * Indoqa licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.indoqa.solr.spatial.corridor.query.route;
+
+import java.io.IOException;
+import java.util.Map;
+
+import org.apache.lucene.geo.GeoEncodingUtils;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.SortedNumericDocValues;
+import org.apache.lucene.queries.function.FunctionValues;
+import org.apache.lucene.queries.function.ValueSource;
+import org.apache.solr.common.SolrException;
+import org.apache.solr.common.SolrException.ErrorCode;
+import org.apache.solr.schema.SchemaField;
+
+/**
+ * Reads the locations of a <code>solr.LatLonPointSpatialField</code> from its doc values (LatLonDocValuesField), as
+ * [latitude, longitude] like the value source of <code>solr.LatLonType</code>. Solr does not provide a value source for this
+ * field type. Documents without a location are at 0,0, the first location of multi valued fields is used.
+ */
+public class LatLonPointValueSource extends ValueSource {
+
+    private final String fieldName;
+
+    public LatLonPointValueSource(SchemaField field) {
+        if (!field.hasDocValues()) {
+            throw new SolrException(ErrorCode.BAD_REQUEST, "The location field '" + field.getName() + "' requires docValues.");
+        }
+
+        this.fieldName = field.getName();
+    }
+
+    @Override
+    public String description() {
+        return "latLonPoint(" + this.fieldName + ")";
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof LatLonPointValueSource)) {
+            return false;
+        }
+
+        return this.fieldName.equals(((LatLonPointValueSource) o).fieldName);
+    }
+
+    @SuppressWarnings("rawtypes")
+    @Override
+    public FunctionValues getValues(Map context, LeafReaderContext readerContext) throws IOException {
+        return new LatLonPointFunctionValues(readerContext);
+    }
+
+    @Override
+    public int hashCode() {
+        return ("latLonPoint" + this.fieldName).hashCode();
+    }
+
+    private final class LatLonPointFunctionValues extends FunctionValues {
+
+        private final LeafReaderContext readerContext;
+        private SortedNumericDocValues docValues;
+        private int docId = -1;
+        private boolean exists;
+        private double latitude;
+        private double longitude;
+
+        LatLonPointFunctionValues(LeafReaderContext readerContext) throws IOException {
+            this.readerContext = readerContext;
+            this.docValues = this.getDocValues();
+        }
+
+        @Override
+        public void doubleVal(int doc, double[] vals) {
+            try {
+                this.advance(doc);
+            } catch (IOException e) {
+                throw new SolrException(ErrorCode.SERVER_ERROR, "Could not read the location of document " + doc + ".", e);
+            }
+
+            vals[0] = this.latitude;
+            vals[1] = this.longitude;
+        }
+
+        @Override
+        public boolean exists(int doc) throws IOException {
+            this.advance(doc);
+            return this.exists;
+        }
+
+        @Override
+        public String toString(int doc) throws IOException {
+            this.advance(doc);
+            return LatLonPointValueSource.this.description() + '=' + this.latitude + ',' + this.longitude;
+        }
+
+        private void advance(int doc) throws IOException {
+            if (doc == this.docId) {
+                return;
+            }
+
+            // doc values can only be iterated forwards
+            if (doc < this.docId) {
+                this.docValues = this.getDocValues();
+            }
+
+            this.docId = doc;
+            this.exists = this.docValues.advanceExact(doc);
+            if (this.exists) {
+                long encoded = this.docValues.nextValue();
+                this.latitude = GeoEncodingUtils.decodeLatitude((int) (encoded >> 32));
+                this.longitude = GeoEncodingUtils.decodeLongitude((int) encoded);
+            } else {
+                this.latitude = 0;
+                this.longitude = 0;
+            }
+        }
+
+        private SortedNumericDocValues getDocValues() throws IOException {
+            return DocValues.getSortedNumeric(this.readerContext.reader(), LatLonPointValueSource.this.fieldName);
+        }
+    }
+}
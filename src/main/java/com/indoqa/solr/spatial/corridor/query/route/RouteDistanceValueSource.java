@@ -16,38 +16,97 @@
  */
 package com.indoqa.solr.spatial.corridor.query.route;
 
-import com.indoqa.solr.spatial.corridor.geo.GeoUtils;
+import java.util.Arrays;
+import java.util.Locale;
+
+import com.indoqa.solr.spatial.corridor.geo.DistanceStrategy;
+import com.indoqa.solr.spatial.corridor.geo.RouteIndex;
+import com.indoqa.solr.spatial.corridor.geo.RouteProjection;
 import org.apache.lucene.queries.function.ValueSource;
 
-import org.locationtech.jts.geom.Coordinate;
 import org.locationtech.jts.geom.LineString;
-import org.locationtech.jts.geom.Point;
-import org.locationtech.jts.linearref.LinearLocation;
-import org.locationtech.jts.linearref.LocationIndexedLine;
 
 public class RouteDistanceValueSource extends AbstractRouteQueryValueSource {
 
+    private final DistanceStrategy distanceStrategy;
+
     protected RouteDistanceValueSource(LineString lineString, ValueSource loctionValueSource) {
+        this(lineString, loctionValueSource, DistanceStrategy.GEODESIC);
+    }
+
+    protected RouteDistanceValueSource(LineString lineString, ValueSource loctionValueSource, DistanceStrategy distanceStrategy) {
         super(lineString, loctionValueSource);
+        this.distanceStrategy = distanceStrategy;
+    }
+
+    private RouteDistanceValueSource(RouteDistanceValueSource other, DistanceStrategy distanceStrategy) {
+        super(other.getLineString(), other.getRouteIndex(), other.getLocationValueSource());
+        this.distanceStrategy = distanceStrategy;
     }
 
     @Override
     public String description() {
-        return "corridorDistance()";
+        if (this.distanceStrategy == DistanceStrategy.GEODESIC) {
+            return "corridorDistance()";
+        }
+
+        return "corridorDistance(" + this.distanceStrategy.name().toLowerCase(Locale.ROOT) + ")";
+    }
+
+    public DistanceStrategy getDistanceStrategy() {
+        return this.distanceStrategy;
+    }
+
+    /**
+     * @return the same corridor distance (sharing the route index) calculated with another {@link DistanceStrategy}.
+     */
+    public RouteDistanceValueSource withDistanceStrategy(DistanceStrategy strategy) {
+        return new RouteDistanceValueSource(this, strategy);
+    }
+
+    /**
+     * @param relativeError if greater than 0, the distances of this (approximating) strategy within this relative error of the
+     * threshold are checked with the geodesic.
+     * @return a value source deciding whether locations are within <code>threshold</code> kilometers of the same route.
+     * @see RouteWithinValueSource
+     */
+    public RouteWithinValueSource within(double threshold, double relativeError) {
+        return new RouteWithinValueSource(this.getLineString(), this.getRouteIndex(), this.getLocationValueSource(),
+            this.distanceStrategy, threshold, relativeError);
     }
 
     @Override
-    protected double getValue(Point point) {
-        LineString lineString = this.getLineString();
-        if (point == null || lineString == null) {
+    protected double getValue(double longitude, double latitude, RouteProjection projection) {
+        RouteIndex routeIndex = this.getRouteIndex();
+        if (routeIndex == null || !routeIndex.project(longitude, latitude, projection)) {
             return Double.MAX_VALUE;
         }
 
-        LocationIndexedLine lineRef = new LocationIndexedLine(lineString);
-        LinearLocation loc = lineRef.project(point.getCoordinate());
+        return this.distanceStrategy.calculateDistanceInKilometers(projection.getX(), projection.getY(), longitude, latitude);
+    }
+
+    @Override
+    protected void getValues(Batch batch, int count, double[] values) {
+        RouteIndex routeIndex = this.getRouteIndex();
+        if (routeIndex == null || routeIndex.isEmpty()) {
+            Arrays.fill(values, 0, count, Double.MAX_VALUE);
+            return;
+        }
+
+        double[] longitudes = batch.getLongitudes();
+        double[] latitudes = batch.getLatitudes();
+        double[] projectedLongitudes = batch.getProjectedLongitudes();
+        double[] projectedLatitudes = batch.getProjectedLatitudes();
+        RouteProjection projection = batch.getProjection();
+
+        for (int i = 0; i < count; i++) {
+            routeIndex.project(longitudes[i], latitudes[i], projection);
+            projectedLongitudes[i] = projection.getX();
+            projectedLatitudes[i] = projection.getY();
+        }
 
-        Coordinate extractPoint = lineRef.extractPoint(loc);
-        return GeoUtils.calculateDistanceInKilometers(extractPoint, point.getCoordinate());
+        this.distanceStrategy.calculateDistancesInKilometers(projectedLongitudes, projectedLatitudes, longitudes, latitudes, values,
+            count);
     }
 
 }
@@ -16,15 +16,27 @@
  */
 package com.indoqa.solr.spatial.corridor.query.route;
 
+import com.indoqa.solr.spatial.corridor.geo.DistanceStrategy;
 import org.apache.lucene.queries.function.ValueSource;
+import org.apache.solr.search.FunctionQParser;
+import org.apache.solr.search.SyntaxError;
 
 import org.locationtech.jts.geom.LineString;
 
 public class RouteDistanceValueSourceParser extends AbstractRouteQueryValueSourceParser {
 
     @Override
-    protected ValueSource createValueSource(LineString lineString, ValueSource locationValueSource) {
-        return new RouteDistanceValueSource(lineString, locationValueSource);
+    protected ValueSource createValueSource(FunctionQParser fp, LineString lineString, ValueSource locationValueSource)
+            throws SyntaxError {
+        return new RouteDistanceValueSource(lineString, locationValueSource, parseDistanceStrategy(fp.getParam("corridor.distance")));
+    }
+
+    static DistanceStrategy parseDistanceStrategy(String value) throws SyntaxError {
+        try {
+            return DistanceStrategy.parse(value);
+        } catch (IllegalArgumentException e) {
+            throw new SyntaxError("Unknown distance strategy '" + value + "', expected geodesic, haversine or equirectangular", e);
+        }
     }
 
     @Override
@@ -18,36 +18,73 @@ package com.indoqa.solr.spatial.corridor.query.route;
 
 import static com.indoqa.solr.spatial.corridor.CorridorConstants.WGS84_TO_KILOMETERS_FACTOR;
 
+import java.util.Arrays;
+
+import com.indoqa.solr.spatial.corridor.geo.RouteIndex;
+import com.indoqa.solr.spatial.corridor.geo.RouteProjection;
 import org.apache.lucene.queries.function.ValueSource;
 
 import org.locationtech.jts.geom.LineString;
-import org.locationtech.jts.geom.Point;
-import org.locationtech.jts.linearref.LinearLocation;
-import org.locationtech.jts.linearref.LocationIndexedLine;
 
 public class RoutePositionValueSource extends AbstractRouteQueryValueSource {
 
+    private final boolean geodesic;
+
     protected RoutePositionValueSource(LineString lineString, ValueSource loctionValueSource) {
+        this(lineString, loctionValueSource, false);
+    }
+
+    /**
+     * @param geodesic measures the position with the geodesic lengths of the segments instead of their length in degrees (which
+     * overestimates east-west distances away from the equator).
+     */
+    protected RoutePositionValueSource(LineString lineString, ValueSource loctionValueSource, boolean geodesic) {
         super(lineString, loctionValueSource);
+        this.geodesic = geodesic;
     }
 
     @Override
     public String description() {
-        return "corridorPosition()";
+        return this.geodesic ? "corridorPosition(geodesic)" : "corridorPosition()";
+    }
+
+    public boolean isGeodesic() {
+        return this.geodesic;
     }
 
     @Override
-    protected double getValue(Point point) {
-        LineString lineString = this.getLineString();
-        if (lineString == null || point == null) {
+    protected double getValue(double longitude, double latitude, RouteProjection projection) {
+        RouteIndex routeIndex = this.getRouteIndex();
+        if (routeIndex == null || !routeIndex.project(longitude, latitude, projection)) {
             return Double.MAX_VALUE;
         }
-        LocationIndexedLine indexedLineString = new LocationIndexedLine(lineString);
-        LinearLocation intersection = indexedLineString.project(point.getCoordinate());
 
-        LineString routeToIntersection = (LineString) indexedLineString.extractLine(indexedLineString.getStartIndex(), intersection);
+        return this.getPosition(routeIndex, projection);
+    }
 
-        return routeToIntersection.getLength() * WGS84_TO_KILOMETERS_FACTOR;
+    @Override
+    protected void getValues(Batch batch, int count, double[] values) {
+        RouteIndex routeIndex = this.getRouteIndex();
+        if (routeIndex == null || routeIndex.isEmpty()) {
+            Arrays.fill(values, 0, count, Double.MAX_VALUE);
+            return;
+        }
+
+        double[] longitudes = batch.getLongitudes();
+        double[] latitudes = batch.getLatitudes();
+        RouteProjection projection = batch.getProjection();
+
+        for (int i = 0; i < count; i++) {
+            routeIndex.project(longitudes[i], latitudes[i], projection);
+            values[i] = this.getPosition(routeIndex, projection);
+        }
     }
 
+    private double getPosition(RouteIndex routeIndex, RouteProjection projection) {
+        if (this.geodesic) {
+            return routeIndex.getGeodesicPosition(projection);
+        }
+
+        return routeIndex.getPlanarPosition(projection) * WGS84_TO_KILOMETERS_FACTOR;
+    }
 }
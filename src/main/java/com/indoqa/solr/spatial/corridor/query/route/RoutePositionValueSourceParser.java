@@ -17,14 +17,29 @@
 package com.indoqa.solr.spatial.corridor.query.route;
 
 import org.apache.lucene.queries.function.ValueSource;
+import org.apache.solr.search.FunctionQParser;
+import org.apache.solr.search.SyntaxError;
 
 import org.locationtech.jts.geom.LineString;
 
 public class RoutePositionValueSourceParser extends AbstractRouteQueryValueSourceParser {
 
+    static boolean parseGeodesic(String value) throws SyntaxError {
+        if (value == null || "planar".equalsIgnoreCase(value.trim())) {
+            return false;
+        }
+
+        if ("geodesic".equalsIgnoreCase(value.trim())) {
+            return true;
+        }
+
+        throw new SyntaxError("Unknown position length '" + value + "', expected planar or geodesic");
+    }
+
     @Override
-    protected ValueSource createValueSource(LineString lineString, ValueSource locationValueSource) {
-        return new RoutePositionValueSource(lineString, locationValueSource);
+    protected ValueSource createValueSource(FunctionQParser fp, LineString lineString, ValueSource locationValueSource)
+            throws SyntaxError {
+        return new RoutePositionValueSource(lineString, locationValueSource, parseGeodesic(fp.getParam("corridor.position")));
     }
 
     @Override
@@ -16,55 +16,151 @@
  */
 package com.indoqa.solr.spatial.corridor.query.route;
 
+import java.util.concurrent.ExecutorService;
+
+import com.indoqa.solr.spatial.corridor.CorridorRangeQuery;
 import com.indoqa.solr.spatial.corridor.LineStringUtils;
+import com.indoqa.solr.spatial.corridor.geo.DistanceStrategy;
+import com.indoqa.solr.spatial.corridor.geo.GeoUtils;
+import com.indoqa.solr.spatial.corridor.geo.RouteIndex;
+import org.apache.lucene.document.LatLonPoint;
 import org.apache.lucene.queries.function.ValueSource;
+import org.apache.lucene.search.BooleanClause.Occur;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.MatchNoDocsQuery;
 import org.apache.lucene.search.Query;
 import org.apache.solr.common.params.SolrParams;
 import org.apache.solr.request.SolrQueryRequest;
+import org.apache.solr.schema.FieldType;
+import org.apache.solr.schema.LatLonPointSpatialField;
 import org.apache.solr.schema.SchemaField;
-import org.apache.solr.search.FunctionRangeQuery;
 import org.apache.solr.search.QParser;
 import org.apache.solr.search.SyntaxError;
-import org.apache.solr.search.function.ValueSourceRangeFilter;
 
+import org.locationtech.jts.geom.Envelope;
 import org.locationtech.jts.geom.LineString;
 
 public class RouteQueryParser extends QParser {
 
+    private static final int MAX_ENVELOPES = 128;
+
+    private final ExecutorService executor;
+    private final int docsPerTask;
+
     public RouteQueryParser(String qstr, SolrParams localParams, SolrParams params, SolrQueryRequest req) {
+        this(qstr, localParams, params, req, null, 0);
+    }
+
+    /**
+     * @param executor evaluates the segments concurrently, unless <code>null</code> or the query sets <code>parallel=false</code>.
+     */
+    public RouteQueryParser(String qstr, SolrParams localParams, SolrParams params, SolrQueryRequest req, ExecutorService executor,
+            int docsPerTask) {
         super(qstr, localParams, params, req);
+
+        this.executor = executor;
+        this.docsPerTask = docsPerTask;
     }
 
     @Override
     public Query parse() throws SyntaxError {
-        ValueSource locationValueSource = this.parseLocationValueSource();
+        SchemaField locationField = this.req.getSchema().getField(this.getParam("field"));
+        ValueSource locationValueSource = this.getLocationValueSource(locationField);
 
         LineString lineString = this.parseLineString();
-        String buffer = this.parseBuffer();
+        double buffer = this.parseDouble("buffer", 5);
+        DistanceStrategy distanceStrategy = RouteDistanceValueSourceParser.parseDistanceStrategy(this.getParam("distance"));
+
+        RouteDistanceValueSource corridorDistanceValueSource =
+            new RouteDistanceValueSource(lineString, locationValueSource, distanceStrategy);
+        Query approximation = this.createApproximation(locationField, corridorDistanceValueSource.getRouteIndex(), buffer);
+
+        double relativeError = 0;
+        if (distanceStrategy != DistanceStrategy.GEODESIC && this.getBoolParam("refine", false)) {
+            relativeError = this.parseDouble("refineTolerance", distanceStrategy.getRelativeError());
+        }
 
-        RouteDistanceValueSource corridorDistanceValueSource = new RouteDistanceValueSource(lineString, locationValueSource);
-        ValueSourceRangeFilter filter = new ValueSourceRangeFilter(corridorDistanceValueSource, "0", buffer, true, true);
-        return new FunctionRangeQuery(filter);
+        // a location matches as soon as one segment is within the buffer, there is no need for the minimum distance
+        CorridorRangeQuery query =
+            new CorridorRangeQuery(approximation, corridorDistanceValueSource.within(buffer, relativeError), 0, buffer);
+
+        if (this.executor != null && this.getBoolParam("parallel", true)) {
+            return query.withExecutor(this.executor, this.docsPerTask);
+        }
+
+        return query;
     }
 
-    private String parseBuffer() {
-        String buffer = this.getParam("buffer");
+    private Query createApproximation(SchemaField locationField, RouteIndex routeIndex, double buffer) {
+        if (routeIndex == null || routeIndex.isEmpty()) {
+            return new MatchNoDocsQuery("empty corridor route");
+        }
+
+        BooleanQuery.Builder builder = new BooleanQuery.Builder();
+        for (Envelope envelope : routeIndex.getEnvelopes(MAX_ENVELOPES)) {
+            Query envelopeQuery = this.createEnvelopeQuery(locationField, GeoUtils.expandByKilometers(envelope, buffer));
 
-        if (buffer == null) {
-            return "5";
+            if (envelopeQuery == null) {
+                return new MatchAllDocsQuery();
+            }
+
+            builder.add(envelopeQuery, Occur.SHOULD);
         }
+        return builder.build();
+    }
 
-        return buffer;
+    private Query createEnvelopeQuery(SchemaField locationField, Envelope envelope) {
+        FieldType fieldType = locationField.getType();
+
+        if (isLatLonType(fieldType)) {
+            return fieldType.getRangeQuery(this, locationField, envelope.getMinY() + "," + envelope.getMinX(),
+                envelope.getMaxY() + "," + envelope.getMaxX(), true, true);
+        }
+
+        if (fieldType instanceof LatLonPointSpatialField && locationField.indexed()) {
+            return LatLonPoint.newBoxQuery(locationField.getName(), envelope.getMinY(), envelope.getMaxY(), envelope.getMinX(),
+                envelope.getMaxX());
+        }
+
+        return null;
     }
 
-    private LineString parseLineString() throws SyntaxError {
-        return LineStringUtils.parseOrGet(this.getParam("corridor.route"), null);
+    // LatLonType is deprecated, but still a supported location field: referenced by its full name to keep the suppression local
+    @SuppressWarnings("deprecation")
+    private static boolean isLatLonType(FieldType fieldType) {
+        return fieldType instanceof org.apache.solr.schema.LatLonType;
     }
 
-    private ValueSource parseLocationValueSource() {
-        SchemaField locationField = this.req.getSchema().getField(this.getParam("field"));
-        ValueSource locationValueSource = locationField.getType().getValueSource(locationField, this);
-        return locationValueSource;
+    private ValueSource getLocationValueSource(SchemaField locationField) {
+        if (locationField.getType() instanceof LatLonPointSpatialField) {
+            return new LatLonPointValueSource(locationField);
+        }
+
+        return locationField.getType().getValueSource(locationField, this);
+    }
+
+    private boolean getBoolParam(String name, boolean defaultValue) {
+        String value = this.getParam(name);
+        return value == null ? defaultValue : Boolean.parseBoolean(value);
+    }
+
+    private double parseDouble(String name, double defaultValue) throws SyntaxError {
+        String value = this.getParam(name);
+
+        if (value == null) {
+            return defaultValue;
+        }
+
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new SyntaxError("Parameter '" + name + "' must be a number: " + value, e);
+        }
+    }
+
+    private LineString parseLineString() throws SyntaxError {
+        return LineStringUtils.parseOrGet(this.req, this.getParam("corridor.route"));
     }
 
 }
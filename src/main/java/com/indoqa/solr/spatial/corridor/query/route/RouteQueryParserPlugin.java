@@ -16,23 +16,66 @@
  */
 package com.indoqa.solr.spatial.corridor.query.route;
 
+import java.io.Closeable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
 import org.apache.solr.common.params.SolrParams;
 import org.apache.solr.common.util.NamedList;
+import org.apache.solr.common.util.SolrNamedThreadFactory;
 import org.apache.solr.request.SolrQueryRequest;
 import org.apache.solr.search.QParser;
 import org.apache.solr.search.QParserPlugin;
 
-public class RouteQueryParserPlugin extends QParserPlugin {
+/**
+ * Creates the {@link RouteQueryParser} for {!corridor}. With the init parameter <code>threads</code> &gt; 0, the corridor
+ * distance of all segments is calculated concurrently on a pool of that size, in tasks of about <code>docsPerTask</code>
+ * documents within the bounding box of the route (default {@value #DEFAULT_DOCS_PER_TASK}). The pool is shut down when the core closes its query parsers.
+ */
+public class RouteQueryParserPlugin extends QParserPlugin implements Closeable {
+
+    public static final int DEFAULT_DOCS_PER_TASK = 65536;
+
+    private static final long THREAD_KEEP_ALIVE_SECONDS = 60;
+
+    private ExecutorService executor;
+    private int docsPerTask = DEFAULT_DOCS_PER_TASK;
+
+    @Override
+    public void close() {
+        if (this.executor != null) {
+            this.executor.shutdownNow();
+        }
+    }
 
     @Override
     public QParser createParser(String qstr, SolrParams localParams, SolrParams params, SolrQueryRequest req) {
-        return new RouteQueryParser(qstr, localParams, params, req);
+        return new RouteQueryParser(qstr, localParams, params, req, this.executor, this.docsPerTask);
     }
 
     @SuppressWarnings("rawtypes")
     @Override
     public void init(NamedList args) {
-        // nothing to do
+        if (args == null) {
+            return;
+        }
+
+        Object docsPerTaskArg = args.get("docsPerTask");
+        if (docsPerTaskArg != null) {
+            this.docsPerTask = Integer.parseInt(docsPerTaskArg.toString());
+        }
+
+        Object threadsArg = args.get("threads");
+        int threads = threadsArg == null ? 0 : Integer.parseInt(threadsArg.toString());
+        if (threads > 0) {
+            // idle threads terminate, so a pool that is rarely used does not keep any threads
+            ThreadPoolExecutor threadPoolExecutor = new ThreadPoolExecutor(threads, threads, THREAD_KEEP_ALIVE_SECONDS,
+                TimeUnit.SECONDS, new LinkedBlockingQueue<>(), new SolrNamedThreadFactory("corridorRange"));
+            threadPoolExecutor.allowCoreThreadTimeOut(true);
+            this.executor = threadPoolExecutor;
+        }
     }
 
 }
@@ -0,0 +1,145 @@
+/*
+ * Licensed to the Indoqa Software Design und Beratung GmbH (Indoqa) under
+ * one or more contributor license agreements. See the NOTICE file distributed
+ * with this work for additional information regarding copyright ownership.
+ * Indoqa licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.indoqa.solr.spatial.corridor.query.route;
+
+import java.util.Locale;
+
+import com.indoqa.solr.spatial.corridor.geo.DistanceStrategy;
+import com.indoqa.solr.spatial.corridor.geo.GeoUtils;
+import com.indoqa.solr.spatial.corridor.geo.ProjectionFilter;
+import com.indoqa.solr.spatial.corridor.geo.RouteIndex;
+import com.indoqa.solr.spatial.corridor.geo.RouteProjection;
+import org.apache.lucene.queries.function.ValueSource;
+
+import org.locationtech.jts.geom.LineString;
+
+/**
+ * The corridor distance reduced to a decision: 0 for locations within the threshold (in kilometers) of any segment of the
+ * route, {@link Double#MAX_VALUE} for all others. Other than {@link RouteDistanceValueSource}, the search for the nearest
+ * segment stops at the first segment within the threshold and skips all segments outside of the bounding box of the
+ * threshold around the location.
+ */
+public class RouteWithinValueSource extends AbstractRouteQueryValueSource implements ProjectionFilter {
+
+    // beyond, the approximation does not decide anything
+    private static final double MAX_RELATIVE_ERROR = 0.5;
+
+    private final DistanceStrategy distanceStrategy;
+    private final double threshold;
+    private final double relativeError;
+    private final double latitudeDelta;
+
+    protected RouteWithinValueSource(LineString lineString, RouteIndex routeIndex, ValueSource loctionValueSource,
+            DistanceStrategy distanceStrategy, double threshold, double relativeError) {
+        super(lineString, routeIndex, loctionValueSource);
+
+        this.distanceStrategy = distanceStrategy;
+        this.threshold = threshold;
+        this.relativeError = relativeError;
+        this.latitudeDelta = GeoUtils.getLatitudeDelta(threshold);
+    }
+
+    @Override
+    public boolean accept(double x, double y, RouteProjection projection) {
+        if (this.distanceStrategy == DistanceStrategy.GEODESIC) {
+            return this.isGeodesicWithin(x, y, projection);
+        }
+
+        double distance = this.distanceStrategy.calculateDistanceInKilometers(projection.getX(), projection.getY(), x, y);
+        if (this.relativeError <= 0) {
+            return distance <= this.threshold;
+        }
+
+        double relativeError = this.relativeError
+            + this.distanceStrategy.getProjectionError(distance, Math.max(Math.abs(projection.getY()), Math.abs(y)));
+        if (relativeError >= MAX_RELATIVE_ERROR) {
+            return this.isGeodesicWithin(x, y, projection);
+        }
+
+        // the geodesic is within [distance / (1 + relativeError), distance / (1 - relativeError)]
+        double tolerance = distance * relativeError / (1 - relativeError);
+        if (distance + tolerance <= this.threshold) {
+            return true;
+        }
+
+        if (distance - tolerance > this.threshold) {
+            return false;
+        }
+
+        return this.isGeodesicWithin(x, y, projection);
+    }
+
+    @Override
+    public String description() {
+        StringBuilder result = new StringBuilder("corridorWithin(").append(this.threshold);
+
+        if (this.distanceStrategy != DistanceStrategy.GEODESIC) {
+            result.append(',').append(this.distanceStrategy.name().toLowerCase(Locale.ROOT));
+        }
+
+        if (this.relativeError > 0) {
+            result.append(",refine=").append(this.relativeError);
+        }
+
+        return result.append(')').toString();
+    }
+
+    public double getThreshold() {
+        return this.threshold;
+    }
+
+    @Override
+    protected double getValue(double longitude, double latitude, RouteProjection projection) {
+        RouteIndex routeIndex = this.getRouteIndex();
+        if (routeIndex == null) {
+            return Double.MAX_VALUE;
+        }
+
+        double longitudeDelta = GeoUtils.getLongitudeDelta(this.threshold, Math.min(Math.abs(latitude) + this.latitudeDelta, 90));
+
+        if (routeIndex.projectOnAnySegment(longitude, latitude, longitude - longitudeDelta, latitude - this.latitudeDelta,
+            longitude + longitudeDelta, latitude + this.latitudeDelta, this, projection)) {
+            return 0;
+        }
+
+        return Double.MAX_VALUE;
+    }
+
+    private boolean isGeodesicWithin(double x, double y, RouteProjection projection) {
+        // cheap bounds decide most projections, only those close to the threshold need the geodesic
+        if (GeoUtils.getMinDistanceInKilometers(projection.getX(), projection.getY(), x, y, this.threshold) > this.threshold) {
+            return false;
+        }
+
+        if (GeoUtils.getMaxDistanceInKilometers(projection.getX(), projection.getY(), x, y) <= this.threshold) {
+            return true;
+        }
+
+        return DistanceStrategy.GEODESIC.calculateDistanceInKilometers(projection.getX(), projection.getY(), x, y) <= this.threshold;
+    }
+
+    @Override
+    protected void getValues(Batch batch, int count, double[] values) {
+        double[] longitudes = batch.getLongitudes();
+        double[] latitudes = batch.getLatitudes();
+        RouteProjection projection = batch.getProjection();
+
+        for (int i = 0; i < count; i++) {
+            values[i] = this.getValue(longitudes[i], latitudes[i], projection);
+        }
+    }
+}
@@ -0,0 +1,247 @@
+/*
+ * Licensed to the Indoqa Software Design und Beratung GmbH (Indoqa) under
+ * one or more contributor license agreements. See the NOTICE file distributed
+ * with this work for additional information regarding copyright ownership.
+ * Indoqa licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.indoqa.solr.spatial.corridor.wkt;
+
+import org.locationtech.jts.geom.CoordinateSequence;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.geom.impl.PackedCoordinateSequence;
+
+/**
+ * Single pass scanner for WKT LineStrings. The coordinates are parsed directly from the characters into the array of a
+ * {@link PackedCoordinateSequence}, without creating intermediate strings. Ordinates beyond x and y are skipped.
+ */
+public final class WktLineStringParser {
+
+    private static final String LINESTRING = "LINESTRING";
+
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+    private static final double[] POWERS_OF_TEN = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14,
+        1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+
+    private final CharSequence wkt;
+    private final int end;
+    private int position;
+
+    private WktLineStringParser(CharSequence wkt) {
+        this.wkt = wkt;
+        this.end = wkt.length();
+    }
+
+    /**
+     * @return the parsed LineString or <code>null</code> if the WKT contains no LineString with coordinates.
+     * @throws IllegalArgumentException if the coordinates of the LineString are malformed.
+     */
+    public static LineString parse(CharSequence wkt, GeometryFactory geometryFactory) {
+        if (wkt == null) {
+            return null;
+        }
+
+        WktLineStringParser parser = new WktLineStringParser(wkt);
+        double[] coordinates = parser.parseCoordinates();
+        if (coordinates == null) {
+            return null;
+        }
+
+        CoordinateSequence sequence = new PackedCoordinateSequence.Double(coordinates, 2, 0);
+        return geometryFactory.createLineString(sequence);
+    }
+
+    private static boolean isNumberCharacter(char character) {
+        return character >= '0' && character <= '9' || character == '.' || character == '-' || character == '+' || character == 'e'
+            || character == 'E';
+    }
+
+    private int countCoordinates() {
+        int result = 1;
+
+        for (int i = this.position; i < this.end; i++) {
+            char character = this.wkt.charAt(i);
+
+            if (character == ',') {
+                result++;
+            } else if (character == ')') {
+                break;
+            }
+        }
+
+        return result;
+    }
+
+    private IllegalArgumentException createException(String message) {
+        return new IllegalArgumentException(message + " at position " + this.position + " of WKT LineString.");
+    }
+
+    private int findLineString() {
+        int last = this.end - LINESTRING.length();
+
+        for (int i = 0; i <= last; i++) {
+            if (this.regionMatchesIgnoreCase(i, LINESTRING)) {
+                return i + LINESTRING.length();
+            }
+        }
+
+        return -1;
+    }
+
+    private double[] parseCoordinates() {
+        int start = this.findLineString();
+        if (start == -1) {
+            return null;
+        }
+
+        this.position = start;
+        this.skipWhitespace();
+        this.skipDimension();
+        if (this.position >= this.end || this.wkt.charAt(this.position) != '(') {
+            return null;
+        }
+
+        this.position++;
+        this.skipWhitespace();
+        if (this.position >= this.end || this.wkt.charAt(this.position) == ')') {
+            return null;
+        }
+
+        double[] result = new double[this.countCoordinates() * 2];
+        int index = 0;
+
+        while (true) {
+            result[index++] = this.parseNumber();
+            this.skipWhitespace();
+            result[index++] = this.parseNumber();
+            this.skipOrdinates();
+
+            if (this.position >= this.end) {
+                throw this.createException("Missing ')'");
+            }
+
+            char separator = this.wkt.charAt(this.position++);
+            if (separator == ')') {
+                return result;
+            }
+
+            if (separator != ',') {
+                throw this.createException("Unexpected character '" + separator + "'");
+            }
+
+            this.skipWhitespace();
+        }
+    }
+
+    private double parseNumber() {
+        int start = this.position;
+        boolean negative = false;
+
+        if (this.position < this.end && (this.wkt.charAt(this.position) == '-' || this.wkt.charAt(this.position) == '+')) {
+            negative = this.wkt.charAt(this.position) == '-';
+            this.position++;
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int scale = 0;
+        boolean exact = true;
+        boolean fraction = false;
+
+        while (this.position < this.end) {
+            char character = this.wkt.charAt(this.position);
+
+            if (character >= '0' && character <= '9') {
+                if (exact) {
+                    mantissa = mantissa * 10 + (character - '0');
+                    exact = mantissa <= MAX_EXACT_MANTISSA;
+                }
+
+                if (fraction) {
+                    scale++;
+                }
+                digits++;
+            } else if (character == '.' && !fraction) {
+                fraction = true;
+            } else {
+                break;
+            }
+
+            this.position++;
+        }
+
+        if (digits == 0) {
+            throw this.createException("Missing number");
+        }
+
+        if (this.position < this.end && isNumberCharacter(this.wkt.charAt(this.position))) {
+            // exponents and overlong mantissas are rare, leave them to the JDK
+            while (this.position < this.end && isNumberCharacter(this.wkt.charAt(this.position))) {
+                this.position++;
+            }
+            exact = false;
+        }
+
+        if (!exact || scale >= POWERS_OF_TEN.length) {
+            try {
+                return Double.parseDouble(this.wkt.subSequence(start, this.position).toString());
+            } catch (NumberFormatException e) {
+                throw this.createException("Invalid number");
+            }
+        }
+
+        // mantissa and power of ten are exact doubles, so the division is correctly rounded like Double.parseDouble
+        double value = mantissa / POWERS_OF_TEN[scale];
+        return negative ? -value : value;
+    }
+
+    private boolean regionMatchesIgnoreCase(int offset, String expected) {
+        for (int i = 0; i < expected.length(); i++) {
+            if (Character.toUpperCase(this.wkt.charAt(offset + i)) != expected.charAt(i)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private void skipDimension() {
+        while (this.position < this.end && "ZzMm".indexOf(this.wkt.charAt(this.position)) != -1) {
+            this.position++;
+        }
+
+        this.skipWhitespace();
+    }
+
+    private void skipOrdinates() {
+        while (this.position < this.end) {
+            char character = this.wkt.charAt(this.position);
+
+            if (character == ',' || character == ')') {
+                return;
+            }
+
+            if (!Character.isWhitespace(character) && !isNumberCharacter(character)) {
+                throw this.createException("Unexpected character '" + character + "'");
+            }
+
+            this.position++;
+        }
+    }
+
+    private void skipWhitespace() {
+        while (this.position < this.end && Character.isWhitespace(this.wkt.charAt(this.position))) {
+            this.position++;
+        }
+    }
+}
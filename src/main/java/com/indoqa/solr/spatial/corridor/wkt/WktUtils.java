@@ -24,8 +24,6 @@ import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.Arrays;
-
 public class WktUtils {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(WktUtils.class);
@@ -33,15 +31,12 @@ public class WktUtils {
     private static final GeometryFactory geometryFactory = new GeometryFactory();
 
     public static LineString parseLineString(String corridorLineString) {
-        String rawCoordinates = StringUtils.substringBetween(corridorLineString, "LINESTRING(", ")");
-        if (rawCoordinates == null || rawCoordinates.trim().isEmpty()) {
+        LineString result = WktLineStringParser.parse(corridorLineString, geometryFactory);
+        if (result == null) {
             LOGGER.warn("Linestring without coordinates found: '{}'", corridorLineString);
             return geometryFactory.createLineString((Coordinate[]) null);
         }
-        String[] coordinates = rawCoordinates.trim().split(",");
-
-        Coordinate[] wktCoordinates = Arrays.stream(coordinates).map(WktUtils::createCoordinate).toArray(Coordinate[]::new);
-        return geometryFactory.createLineString(wktCoordinates);
+        return result;
     }
 
     public static Point parsePoint(String pointString) {
@@ -54,6 +49,10 @@ public class WktUtils {
         return geometryFactory.createPoint(coordinate);
     }
 
+    public static String toPointWkt(Point point) {
+        return "POINT(" + point.getX() + " " + point.getY() + ")";
+    }
+
     private static Coordinate createCoordinate(String rawCoordinates) {
         String[] points = rawCoordinates.trim().split(" ");
 
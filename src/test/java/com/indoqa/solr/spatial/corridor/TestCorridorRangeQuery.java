@@ -0,0 +1,225 @@
+/*
+ * Licensed to the Indoqa Software Design und Beratung GmbH (Indoqa) under
+ * one or more contributor license agreements. See the NOTICE file distributed
+ * with this work for additional information regarding copyright ownership.
+ * Indoqa licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.indoqa.solr.spatial.corridor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.DoubleDocValuesField;
+import org.apache.lucene.document.Field.Store;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.queries.function.FunctionValues;
+import org.apache.lucene.queries.function.docvalues.DoubleDocValues;
+import org.apache.lucene.queries.function.valuesource.DoubleFieldSource;
+import org.apache.lucene.search.FilterWeight;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreMode;
+import org.apache.lucene.search.Scorer;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.Weight;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.junit.Test;
+
+public class TestCorridorRangeQuery {
+
+    @Test
+    public void parallelBatches() throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        Directory directory = createIndex();
+
+        try (DirectoryReader reader = DirectoryReader.open(directory)) {
+            IndexSearcher searcher = new IndexSearcher(reader);
+            BatchFieldSource valueSource = new BatchFieldSource("value");
+            CorridorRangeQuery query = new CorridorRangeQuery(new MatchAllDocsQuery(), valueSource, 5, 14.5);
+
+            assertEquals(99, searcher.count(query));
+            assertEquals(0, valueSource.getBatchedDocs());
+
+            assertEquals(99, searcher.count(query.withExecutor(executor, 500)));
+            assertEquals(999, valueSource.getBatchedDocs());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void parallelApproximationOncePerSegment() throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        Directory directory = createIndex();
+
+        try (DirectoryReader reader = DirectoryReader.open(directory)) {
+            IndexSearcher searcher = new IndexSearcher(reader);
+            CountingQuery approximation = new CountingQuery(new MatchAllDocsQuery());
+            CorridorRangeQuery query = new CorridorRangeQuery(approximation, new DoubleFieldSource("value"), 5, 14.5);
+
+            // many tasks per segment, but one scorer of the approximation
+            assertEquals(99, searcher.count(query.withExecutor(executor, 64)));
+            assertEquals(reader.leaves().size(), approximation.getScorers());
+
+            BatchFieldSource valueSource = new BatchFieldSource("value");
+            CorridorRangeQuery singleDocumentQuery = new CorridorRangeQuery(new TermQuery(new Term("id", "5")), valueSource, 5,
+                14.5);
+            assertEquals(1, searcher.count(singleDocumentQuery.withExecutor(executor, 64)));
+            assertEquals(1, valueSource.getBatchedDocs());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void parallelLikeSequential() throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        Directory directory = createIndex();
+
+        try (DirectoryReader reader = DirectoryReader.open(directory)) {
+            assertTrue(reader.leaves().size() > 1);
+
+            IndexSearcher searcher = new IndexSearcher(reader);
+            CorridorRangeQuery query = new CorridorRangeQuery(new MatchAllDocsQuery(), new DoubleFieldSource("value"), 5, 14.5);
+            CorridorRangeQuery parallelQuery = query.withExecutor(executor, 100);
+
+            assertEquals(128, parallelQuery.getDocsPerTask());
+            assertEquals(query, parallelQuery);
+            assertEquals(99, searcher.count(query));
+            assertEquals(99, searcher.count(parallelQuery));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static Directory createIndex() throws IOException {
+        Directory directory = new ByteBuffersDirectory();
+
+        try (IndexWriter indexWriter = new IndexWriter(directory, new IndexWriterConfig(new StandardAnalyzer()))) {
+            for (int i = 0; i < 1000; i++) {
+                Document document = new Document();
+                document.add(new StringField("id", String.valueOf(i), Store.NO));
+                document.add(new DoubleDocValuesField("value", i % 100));
+                indexWriter.addDocument(document);
+
+                if (i % 300 == 299) {
+                    indexWriter.commit();
+                }
+            }
+            indexWriter.deleteDocuments(new Term("id", "10"));
+        }
+
+        return directory;
+    }
+
+    private static final class CountingQuery extends Query {
+
+        private final Query query;
+        private final AtomicInteger scorers = new AtomicInteger();
+
+        private CountingQuery(Query query) {
+            this.query = query;
+        }
+
+        @Override
+        public Weight createWeight(IndexSearcher searcher, ScoreMode scoreMode, float boost) throws IOException {
+            return new FilterWeight(this.query.createWeight(searcher, scoreMode, boost)) {
+
+                @Override
+                public Scorer scorer(LeafReaderContext context) throws IOException {
+                    CountingQuery.this.scorers.incrementAndGet();
+                    return super.scorer(context);
+                }
+            };
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return this.sameClassAs(obj) && this.query.equals(((CountingQuery) obj).query);
+        }
+
+        public int getScorers() {
+            return this.scorers.get();
+        }
+
+        @Override
+        public int hashCode() {
+            return this.query.hashCode();
+        }
+
+        @Override
+        public String toString(String field) {
+            return "counting(" + this.query.toString(field) + ")";
+        }
+    }
+
+    private static final class BatchFieldSource extends DoubleFieldSource {
+
+        private final AtomicInteger batchedDocs = new AtomicInteger();
+
+        private BatchFieldSource(String field) {
+            super(field);
+        }
+
+        public int getBatchedDocs() {
+            return this.batchedDocs.get();
+        }
+
+        @SuppressWarnings("rawtypes")
+        @Override
+        public FunctionValues getValues(Map context, LeafReaderContext readerContext) throws IOException {
+            FunctionValues values = super.getValues(context, readerContext);
+
+            return new BatchValues(values);
+        }
+
+        private final class BatchValues extends DoubleDocValues implements BatchDoubleValues {
+
+            private final FunctionValues values;
+
+            private BatchValues(FunctionValues values) {
+                super(BatchFieldSource.this);
+
+                this.values = values;
+            }
+
+            @Override
+            public double doubleVal(int docId) throws IOException {
+                return this.values.doubleVal(docId);
+            }
+
+            @Override
+            public void doubleVals(int[] docIds, int count, double[] result) throws IOException {
+                for (int i = 0; i < count; i++) {
+                    result[i] = this.values.doubleVal(docIds[i]);
+                }
+                BatchFieldSource.this.batchedDocs.addAndGet(count);
+            }
+        }
+    }
+}
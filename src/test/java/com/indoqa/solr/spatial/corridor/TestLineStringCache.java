@@ -0,0 +1,105 @@
+/*
+ * Licensed to the Indoqa Software Design und Beratung GmbH (Indoqa) under
+ * one or more contributor license agreements. See the NOTICE file distributed
+ * with this work for additional information regarding copyright ownership.
+ * Indoqa licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.indoqa.solr.spatial.corridor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+
+import com.indoqa.solr.spatial.corridor.wkt.WktUtils;
+import org.apache.lucene.queries.function.FunctionValues;
+import org.junit.Test;
+import org.locationtech.jts.geom.LineString;
+
+public class TestLineStringCache {
+
+    private static final LineString ROUTE_1 = WktUtils.parseLineString("LINESTRING(16.41654 48.19311,16.40812 48.18743)");
+    private static final LineString ROUTE_2 =
+        WktUtils.parseLineString("LINESTRING(16.39751 48.18451,16.38832 48.18125,16.37915 48.17902)");
+
+    @Test
+    public void boundedByBytes() {
+        LineStringCache cache = new LineStringCache(LineStringCache.weigh(ROUTE_2), 0);
+
+        cache.put(1, ROUTE_1);
+        cache.put(2, ROUTE_2);
+        assertTrue(cache.getHeapBytes() <= LineStringCache.weigh(ROUTE_2));
+        assertEquals(0, cache.getOffHeapBytes());
+
+        // one of both routes was evicted
+        assertTrue(cache.getIfPresent(1) == null || cache.getIfPresent(2) == null);
+    }
+
+    @Test
+    public void cachedByNumericHash() throws IOException {
+        LineStringCache cache = new LineStringCache(1024 * 1024, 0);
+        String route = ROUTE_1.toText();
+        long hash = LineStringUtils.calculateHash(route);
+
+        LineString lineString =
+            LineStringUtils.getLineString(new ObjectFunctionValues(route), new ObjectFunctionValues(hash), 0, cache);
+        assertTrue(ROUTE_1.equalsExact(lineString));
+        assertTrue(lineString == cache.getIfPresent(hash));
+    }
+
+    @Test
+    public void stringHashOfOlderIndexIsCalculatedAgain() throws IOException {
+        LineStringCache cache = new LineStringCache(1024 * 1024, 0);
+        String route = ROUTE_2.toText();
+
+        // the MD5 hex string written by older versions
+        FunctionValues hashValues = new ObjectFunctionValues("8f14e45fceea167a5a36dedd4bea2543");
+        LineString lineString = LineStringUtils.getLineString(new ObjectFunctionValues(route), hashValues, 0, cache);
+        assertTrue(ROUTE_2.equalsExact(lineString));
+        assertTrue(lineString == cache.getIfPresent(LineStringUtils.calculateHash(route)));
+    }
+
+    @Test
+    public void evictToOffHeap() {
+        LineStringCache cache = new LineStringCache(LineStringCache.weigh(ROUTE_2), 1024);
+
+        cache.put(1, ROUTE_1);
+        cache.put(2, ROUTE_2);
+        assertTrue(cache.getHeapBytes() <= LineStringCache.weigh(ROUTE_2));
+        assertTrue(cache.getOffHeapBytes() > 0);
+
+        // routes evicted from the heap are loaded from the off-heap tier, with the same coordinates
+        assertTrue(ROUTE_1.equalsExact(cache.get(1, key -> null)));
+        assertTrue(ROUTE_2.equalsExact(cache.get(2, key -> null)));
+        assertTrue(ROUTE_1.equalsExact(cache.getIfPresent(1)));
+    }
+
+    private static final class ObjectFunctionValues extends FunctionValues {
+
+        private final Object value;
+
+        public ObjectFunctionValues(Object value) {
+            this.value = value;
+        }
+
+        @Override
+        public Object objectVal(int doc) {
+            return this.value;
+        }
+
+        @Override
+        public String toString(int doc) {
+            return String.valueOf(this.value);
+        }
+    }
+}
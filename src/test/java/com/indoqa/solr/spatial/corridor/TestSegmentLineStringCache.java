@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Indoqa Software Design und Beratung GmbH (Indoqa) under
+ * one or more contributor license agreements. See the NOTICE file distributed
+ * with this work for additional information regarding copyright ownership.
+ * Indoqa licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.indoqa.solr.spatial.corridor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.HashMap;
+
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.queries.function.FunctionValues;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.junit.Before;
+import org.junit.Test;
+import org.locationtech.jts.geom.LineString;
+
+public class TestSegmentLineStringCache {
+
+    @Before
+    public void purge() {
+        LineStringUtils.purgeCache();
+    }
+
+    @Test
+    public void evictOnSegmentClose() throws IOException {
+        Directory directory = new ByteBuffersDirectory();
+        try (IndexWriter indexWriter = new IndexWriter(directory, new IndexWriterConfig(new StandardAnalyzer()))) {
+            Document document = new Document();
+            document.add(new StoredField("geo", "LINESTRING(16.41654 48.19311,16.40812 48.18743)"));
+            indexWriter.addDocument(document);
+            indexWriter.addDocument(new Document());
+        }
+
+        DirectoryReader reader = DirectoryReader.open(directory);
+        LeafReaderContext readerContext = reader.leaves().get(0);
+
+        LineString lineString = (LineString) getValues(readerContext).objectVal(0);
+        assertEquals(2, lineString.getNumPoints());
+        assertNull(getValues(readerContext).objectVal(1));
+        assertSame(lineString, getValues(readerContext).objectVal(0));
+        assertEquals(2, SegmentLineStringCache.size());
+
+        reader.close();
+        assertEquals(0, SegmentLineStringCache.size());
+    }
+
+    @Test
+    public void evictOnlyClosedSegment() throws IOException {
+        SegmentLineStringCache cache = new SegmentLineStringCache(1024 * 1024, new LineStringCache(1024 * 1024, 0));
+        DirectoryReader reader = DirectoryReader.open(createIndex("LINESTRING(16.41654 48.19311,16.40812 48.18743)"));
+        DirectoryReader otherReader = DirectoryReader.open(createIndex("LINESTRING(16.39751 48.18451,16.38832 48.18125)"));
+        LeafReaderContext readerContext = reader.leaves().get(0);
+        LeafReaderContext otherReaderContext = otherReader.leaves().get(0);
+
+        getValues(cache, readerContext).objectVal(0);
+        getValues(cache, otherReaderContext).objectVal(0);
+        assertEquals(2, cache.getSize());
+
+        // purged segments are no longer cached, but still evicted when they are closed
+        cache.invalidateAll();
+        assertFalse(cache.isCached(readerContext));
+        getValues(cache, readerContext).objectVal(0);
+        getValues(cache, otherReaderContext).objectVal(0);
+        assertTrue(cache.isCached(readerContext));
+
+        reader.close();
+        assertEquals(1, cache.getSize());
+        assertFalse(cache.isCached(readerContext));
+        assertTrue(cache.isCached(otherReaderContext));
+
+        otherReader.close();
+        assertEquals(0, cache.getSize());
+    }
+
+    private static Directory createIndex(String lineString) throws IOException {
+        Directory directory = new ByteBuffersDirectory();
+        try (IndexWriter indexWriter = new IndexWriter(directory, new IndexWriterConfig(new StandardAnalyzer()))) {
+            Document document = new Document();
+            document.add(new StoredField("geo", lineString));
+            indexWriter.addDocument(document);
+        }
+        return directory;
+    }
+
+    private static FunctionValues getValues(SegmentLineStringCache cache, LeafReaderContext readerContext) throws IOException {
+        LineStringValueSource routeValueSource = new LineStringValueSource("geo");
+        FunctionValues hashValues = new LineStringValueSource("geoHash").getValues(new HashMap<>(), readerContext);
+
+        return cache.cached(routeValueSource, routeValueSource.getValues(new HashMap<>(), readerContext), hashValues,
+            readerContext);
+    }
+
+    private static FunctionValues getValues(LeafReaderContext readerContext) throws IOException {
+        LineStringValueSource routeValueSource = new LineStringValueSource("geo");
+        FunctionValues hashValues = new LineStringValueSource("geoHash").getValues(new HashMap<>(), readerContext);
+
+        return SegmentLineStringCache.cached(new HashMap<>(), routeValueSource,
+            routeValueSource.getValues(new HashMap<>(), readerContext), hashValues, readerContext);
+    }
+}
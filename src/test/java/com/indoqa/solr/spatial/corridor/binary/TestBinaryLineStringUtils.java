@@ -0,0 +1,56 @@
+/*
+ * Licensed to the Indoqa Software Design und Beratung GmbH (Indoqa) under
+ * one or more contributor license agreements. See the NOTICE file distributed
+ * with this work for additional information regarding copyright ownership.
+ * Indoqa licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.indoqa.solr.spatial.corridor.binary;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.indoqa.solr.spatial.corridor.wkt.WktUtils;
+import org.apache.lucene.util.BytesRef;
+import org.junit.Test;
+import org.locationtech.jts.geom.LineString;
+
+public class TestBinaryLineStringUtils {
+
+    @Test
+    public void emptyLineString() {
+        LineString decoded = BinaryLineStringUtils.decode(new BytesRef(BinaryLineStringUtils.encode(WktUtils.parseLineString("LINESTRING()"))));
+
+        assertTrue(decoded.isEmpty());
+    }
+
+    @Test
+    public void encodeDecode() {
+        String wkt = "LINESTRING(16.41654 48.19311,16.40812 48.18743,-179.9999999 -89.9999999,179.9999999 89.9999999)";
+        LineString lineString = WktUtils.parseLineString(wkt);
+
+        byte[] encoded = BinaryLineStringUtils.encode(lineString);
+        LineString decoded = BinaryLineStringUtils.decode(new BytesRef(encoded));
+
+        assertEquals(lineString.getNumPoints(), decoded.getNumPoints());
+        for (int i = 0; i < lineString.getNumPoints(); i++) {
+            assertEquals(lineString.getCoordinateN(i).x, decoded.getCoordinateN(i).x, 0.00000005);
+            assertEquals(lineString.getCoordinateN(i).y, decoded.getCoordinateN(i).y, 0.00000005);
+        }
+        assertTrue(encoded.length < wkt.length() / 2);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unsupportedVersion() {
+        BinaryLineStringUtils.decode(new BytesRef(new byte[] {42, 0}));
+    }
+}
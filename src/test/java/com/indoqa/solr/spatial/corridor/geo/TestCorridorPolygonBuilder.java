@@ -0,0 +1,83 @@
+/*
+ * Licensed to the Indoqa Software Design und Beratung GmbH (Indoqa) under
+ * one or more contributor license agreements. See the NOTICE file distributed
+ * with this work for additional information regarding copyright ownership.
+ * Indoqa licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.indoqa.solr.spatial.corridor.geo;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.operation.buffer.BufferParameters;
+
+public class TestCorridorPolygonBuilder {
+
+    private static final GeometryFactory GEOMETRY_FACTORY = new GeometryFactory();
+    private static final double METERS_PER_DEGREE = Math.PI / 180 * 6378137;
+
+    @Test
+    public void defaultLikeBuffer() {
+        LineString lineString = createRandomWalk(new Random(42), 500);
+
+        Geometry expected = lineString.buffer(100 / METERS_PER_DEGREE);
+        assertEquals(expected.toText(), CorridorPolygonBuilder.DEFAULT.create(lineString, 100).toText());
+    }
+
+    @Test
+    public void simplifiedCoversCorridor() {
+        LineString lineString = createRandomWalk(new Random(42), 500);
+        Geometry corridor = CorridorPolygonBuilder.DEFAULT.create(lineString, 100);
+
+        for (CorridorPolygonBuilder.Simplifier simplifier : CorridorPolygonBuilder.Simplifier.values()) {
+            Geometry simplified = new CorridorPolygonBuilder(BufferParameters.DEFAULT_QUADRANT_SEGMENTS, BufferParameters.CAP_ROUND,
+                10, 20, simplifier).create(lineString, 100);
+
+            assertTrue(simplified.getNumPoints() < corridor.getNumPoints());
+            assertTrue(simplified.covers(corridor));
+        }
+    }
+
+    @Test
+    public void fewerQuadrantSegments() {
+        LineString lineString = createRandomWalk(new Random(42), 500);
+
+        Geometry corridor = CorridorPolygonBuilder.DEFAULT.create(lineString, 100);
+        Geometry cheap = new CorridorPolygonBuilder(2, CorridorPolygonBuilder.parseEndCapStyle("flat"), 0, 0,
+            CorridorPolygonBuilder.Simplifier.parse("douglasPeucker")).create(lineString, 100);
+
+        assertTrue(cheap.getNumPoints() < corridor.getNumPoints());
+        assertTrue(cheap.covers(lineString.getPointN(lineString.getNumPoints() / 2)));
+    }
+
+    private static LineString createRandomWalk(Random random, int size) {
+        Coordinate[] coordinates = new Coordinate[size];
+        double x = 16.5;
+        double y = 48.5;
+
+        for (int i = 0; i < size; i++) {
+            x += (random.nextDouble() - 0.4) * 0.001;
+            y += (random.nextDouble() - 0.5) * 0.002;
+            coordinates[i] = new Coordinate(x, y);
+        }
+
+        return GEOMETRY_FACTORY.createLineString(coordinates);
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Licensed to the Indoqa Software Design und Beratung GmbH (Indoqa) under
+ * one or more contributor license agreements. See the NOTICE file distributed
+ * with this work for additional information regarding copyright ownership.
+ * Indoqa licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.indoqa.solr.spatial.corridor.geo;
+
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class TestGeoUtils {
+
+    @Test
+    public void approximationErrors() {
+        Random random = new Random(42);
+
+        for (int i = 0; i < 10000; i++) {
+            double lon1 = random.nextDouble() * 360 - 180;
+            double lat1 = random.nextDouble() * 178 - 89;
+            double lon2 = lon1 + (random.nextDouble() - 0.5) * 2 * random.nextDouble() * 180;
+            double lat2 = Math.max(-89, Math.min(89, lat1 + (random.nextDouble() - 0.5) * 2 * random.nextDouble() * 90));
+            double distance = GeoUtils.calculateDistanceInKilometers(lon1, lat1, lon2, lat2);
+
+            for (DistanceStrategy distanceStrategy : new DistanceStrategy[] {DistanceStrategy.HAVERSINE,
+                DistanceStrategy.EQUIRECTANGULAR}) {
+                double approximation = distanceStrategy.calculateDistanceInKilometers(lon1, lat1, lon2, lat2);
+                double relativeError = distanceStrategy.getRelativeError()
+                    + distanceStrategy.getProjectionError(approximation, Math.max(Math.abs(lat1), Math.abs(lat2)));
+
+                assertTrue(Math.abs(approximation - distance) <= distance * relativeError);
+            }
+        }
+    }
+
+    @Test
+    public void distanceBounds() {
+        Random random = new Random(42);
+
+        for (int i = 0; i < 10000; i++) {
+            double maxKilometers = random.nextDouble() * 50;
+            double lon1 = random.nextDouble() * 360 - 180;
+            double lat1 = random.nextDouble() * 178 - 89;
+            double lon2 = Math.max(-180, Math.min(180, lon1 + (random.nextDouble() - 0.5) * 0.5));
+            double lat2 = Math.max(-90, Math.min(90, lat1 + (random.nextDouble() - 0.5) * 0.5));
+
+            double distance = GeoUtils.calculateDistanceInKilometers(lon1, lat1, lon2, lat2);
+            double minDistance = GeoUtils.getMinDistanceInKilometers(lon1, lat1, lon2, lat2, maxKilometers);
+
+            double planarDistance = Math.hypot(lon2 - lon1, lat2 - lat1);
+            double minPlanarDistance = GeoUtils.getMinDistanceInKilometers(planarDistance, lat1, maxKilometers);
+
+            assertTrue(distance <= GeoUtils.getMaxDistanceInKilometers(lon1, lat1, lon2, lat2));
+            assertTrue(distance <= GeoUtils.getMaxDistanceInKilometers(planarDistance));
+            if (distance <= maxKilometers) {
+                assertTrue(minDistance <= distance);
+                assertTrue(minPlanarDistance <= distance);
+            } else {
+                assertTrue(minDistance > maxKilometers || minDistance <= distance);
+                assertTrue(minPlanarDistance > maxKilometers || minPlanarDistance <= distance);
+            }
+        }
+    }
+}
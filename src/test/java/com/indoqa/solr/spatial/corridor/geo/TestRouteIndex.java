@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Indoqa Software Design und Beratung GmbH (Indoqa) under
+ * one or more contributor license agreements. See the NOTICE file distributed
+ * with this work for additional information regarding copyright ownership.
+ * Indoqa licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.indoqa.solr.spatial.corridor.geo;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import com.indoqa.solr.spatial.corridor.wkt.WktUtils;
+import org.junit.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.linearref.LinearLocation;
+import org.locationtech.jts.linearref.LocationIndexedLine;
+
+public class TestRouteIndex {
+
+    private static final GeometryFactory GEOMETRY_FACTORY = new GeometryFactory();
+
+    @Test
+    public void emptyRoute() {
+        RouteIndex routeIndex = new RouteIndex(WktUtils.parseLineString("LINESTRING()"));
+
+        assertFalse(routeIndex.project(16.41, 48.19, new RouteProjection()));
+    }
+
+    @Test
+    public void projectLikeLocationIndexedLine() {
+        Random random = new Random(42);
+        LineString lineString = createRandomWalk(random, 5000);
+
+        RouteIndex routeIndex = new RouteIndex(lineString);
+        RouteProjection projection = new RouteProjection();
+        LocationIndexedLine indexedLine = new LocationIndexedLine(lineString);
+
+        for (int i = 0; i < 1000; i++) {
+            Coordinate coordinate = new Coordinate(16 + random.nextDouble() * 2, 48 + random.nextDouble() * 2);
+
+            routeIndex.project(coordinate.x, coordinate.y, projection);
+            LinearLocation location = indexedLine.project(coordinate);
+            Coordinate expected = indexedLine.extractPoint(location);
+            double expectedLength = indexedLine.extractLine(indexedLine.getStartIndex(), location).getLength();
+
+            assertEquals(expected.x, projection.getX(), 0.0000001);
+            assertEquals(expected.y, projection.getY(), 0.0000001);
+            assertEquals(expectedLength, routeIndex.getPlanarPosition(projection), 0.0000001);
+        }
+    }
+
+    @Test
+    public void projectOnAnySegmentLikeProject() {
+        Random random = new Random(42);
+        LineString lineString = createRandomWalk(random, 5000);
+
+        RouteIndex routeIndex = new RouteIndex(lineString);
+        RouteProjection projection = new RouteProjection();
+        double threshold = 0.01;
+        ProjectionFilter filter = (x, y, segmentProjection) -> segmentProjection.getDistanceSquared() <= threshold * threshold;
+
+        int within = 0;
+        for (int i = 0; i < 1000; i++) {
+            double x = 16 + random.nextDouble() * 2;
+            double y = 48 + random.nextDouble() * 2;
+
+            routeIndex.project(x, y, projection);
+            boolean expected = projection.getDistanceSquared() <= threshold * threshold;
+
+            boolean actual =
+                routeIndex.projectOnAnySegment(x, y, x - threshold, y - threshold, x + threshold, y + threshold, filter, projection);
+            assertEquals(expected, actual);
+            if (actual) {
+                assertTrue(filter.accept(x, y, projection));
+                within++;
+            }
+        }
+        assertTrue(within > 0);
+    }
+
+    private static LineString createRandomWalk(Random random, int size) {
+        Coordinate[] coordinates = new Coordinate[size];
+        double x = 16.5;
+        double y = 48.5;
+
+        for (int i = 0; i < size; i++) {
+            x += (random.nextDouble() - 0.4) * 0.001;
+            y += (random.nextDouble() - 0.5) * 0.002;
+            coordinates[i] = new Coordinate(x, y);
+        }
+
+        return GEOMETRY_FACTORY.createLineString(coordinates);
+    }
+}
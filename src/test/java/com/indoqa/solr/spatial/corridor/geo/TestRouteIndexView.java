@@ -0,0 +1,135 @@
+/*
+ * Licensed to the Indoqa Software Design und Beratung GmbH (Indoqa) under
+ * one or more contributor license agreements. See the NOTICE file distributed
+ * with this work for additional information regarding copyright ownership.
+ * Indoqa licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.indoqa.solr.spatial.corridor.geo;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import com.indoqa.solr.spatial.corridor.wkt.WktUtils;
+import org.apache.lucene.util.BytesRef;
+import org.junit.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.LineString;
+
+public class TestRouteIndexView {
+
+    private static final GeometryFactory GEOMETRY_FACTORY = new GeometryFactory();
+
+    @Test
+    public void emptyRoute() {
+        RouteIndexView view = wrap(new RouteIndex(WktUtils.parseLineString("LINESTRING()")), 0);
+
+        assertFalse(view.project(16.41, 48.19, new RouteProjection()));
+        assertEquals(0, view.getLineString().getNumPoints());
+    }
+
+    @Test
+    public void projectLikeRouteIndex() {
+        Random random = new Random(42);
+        RouteIndex routeIndex = new RouteIndex(createRandomWalk(random, 5000));
+        RouteIndexView view = wrap(routeIndex, 3);
+
+        RouteProjection expected = new RouteProjection();
+        RouteProjection actual = new RouteProjection();
+
+        for (int i = 0; i < 1000; i++) {
+            double x = 16 + random.nextDouble() * 2;
+            double y = 48 + random.nextDouble() * 2;
+
+            routeIndex.project(x, y, expected);
+            view.project(x, y, actual);
+
+            assertEquals(expected.getSegmentIndex(), actual.getSegmentIndex());
+            assertEquals(expected.getX(), actual.getX(), 0);
+            assertEquals(expected.getY(), actual.getY(), 0);
+            assertEquals(routeIndex.getPlanarPosition(expected), view.getPlanarPosition(actual), 0);
+        }
+    }
+
+    @Test
+    public void simplifiedRoutes() {
+        Random random = new Random(42);
+        LineString lineString = createRandomWalk(random, 5000);
+        RouteIndex routeIndex = new RouteIndex(lineString);
+
+        byte[] encoded = routeIndex.encode(100, 1000, 0);
+        RouteIndexView view = new RouteIndexView().wrap(new BytesRef(encoded));
+
+        // no vertex is removed with a tolerance of 0
+        assertEquals(2, view.getSimplificationCount());
+        assertTrue(view.getSimplificationError(0) >= view.getSimplificationError(1));
+        assertTrue(view.getSimplified(0).getSegmentCount() < view.getSimplified(1).getSegmentCount());
+        assertTrue(view.getSimplified(1).getSegmentCount() < view.getSegmentCount());
+
+        RouteProjection expected = new RouteProjection();
+        RouteProjection actual = new RouteProjection();
+        for (int level = 0; level < view.getSimplificationCount(); level++) {
+            // the error in kilometers is at least the planar error in degrees
+            double error = view.getSimplificationError(level) / 111.3;
+            assertTrue(error > 0);
+
+            for (int i = 0; i < 1000; i++) {
+                double x = 16 + random.nextDouble() * 2;
+                double y = 48 + random.nextDouble() * 2;
+
+                routeIndex.project(x, y, expected);
+                view.getSimplified(level).project(x, y, actual);
+                assertEquals(Math.sqrt(expected.getDistanceSquared()), Math.sqrt(actual.getDistanceSquared()), error);
+            }
+        }
+
+        assertEquals(lineString, view.getLineString());
+    }
+
+    @Test
+    public void toLineString() {
+        LineString lineString = createRandomWalk(new Random(42), 100);
+
+        assertEquals(lineString, wrap(new RouteIndex(lineString), 0).getLineString());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unsupportedFormat() {
+        new RouteIndexView().wrap(new BytesRef(new byte[] {42, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0}));
+    }
+
+    private static LineString createRandomWalk(Random random, int size) {
+        Coordinate[] coordinates = new Coordinate[size];
+        double x = 16.5;
+        double y = 48.5;
+
+        for (int i = 0; i < size; i++) {
+            x += (random.nextDouble() - 0.4) * 0.001;
+            y += (random.nextDouble() - 0.5) * 0.002;
+            coordinates[i] = new Coordinate(x, y);
+        }
+
+        return GEOMETRY_FACTORY.createLineString(coordinates);
+    }
+
+    private static RouteIndexView wrap(RouteIndex routeIndex, int offset) {
+        byte[] encoded = routeIndex.encode();
+        byte[] bytes = new byte[encoded.length + offset];
+        System.arraycopy(encoded, 0, bytes, offset, encoded.length);
+
+        return new RouteIndexView().wrap(new BytesRef(bytes, offset, encoded.length));
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * Licensed to the Indoqa Software Design und Beratung GmbH (Indoqa) under
+ * one or more contributor license agreements. See the NOTICE file distributed
+ * with this work for additional information regarding copyright ownership.
+ * Indoqa licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.indoqa.solr.spatial.corridor.processor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.codahale.metrics.MetricRegistry;
+import com.indoqa.solr.spatial.corridor.EmbeddedSolrInfrastructureRule;
+import com.indoqa.solr.spatial.corridor.LineStringCacheComponent;
+import com.indoqa.solr.spatial.corridor.LineStringUtils;
+import org.apache.solr.client.solrj.SolrQuery;
+import org.apache.solr.client.solrj.embedded.EmbeddedSolrServer;
+import org.apache.solr.client.solrj.request.UpdateRequest;
+import org.apache.solr.client.solrj.response.QueryResponse;
+import org.apache.solr.common.SolrDocument;
+import org.apache.solr.common.SolrInputDocument;
+import org.apache.solr.core.SolrCore;
+import org.junit.After;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+public class TestLinestringHashUpdateProcessor {
+
+    private static final String SOLR_FIELD_ID = "id";
+    private static final int DOCUMENT_COUNT = 50;
+
+    @ClassRule
+    public static EmbeddedSolrInfrastructureRule infrastructureRule = new EmbeddedSolrInfrastructureRule();
+
+    @Test
+    public void bulkInOrder() throws Exception {
+        List<SolrInputDocument> documents = new ArrayList<>();
+        for (int i = 0; i < DOCUMENT_COUNT; i++) {
+            documents.add(createDocument("bulk-" + i % 10, createRoute(i)));
+        }
+
+        UpdateRequest updateRequest = new UpdateRequest();
+        updateRequest.setParam("update.chain", "linestringHashBulk");
+        updateRequest.add(documents);
+        updateRequest.process(infrastructureRule.getSolrClient());
+        infrastructureRule.getSolrClient().commit(true, true);
+
+        SolrQuery query = new SolrQuery("*:*");
+        query.setRows(Integer.MAX_VALUE);
+        query.setFields(SOLR_FIELD_ID, "geoHash", "geoGeom");
+
+        QueryResponse response = infrastructureRule.getSolrClient().query(query);
+        assertEquals(10, response.getResults().getNumFound());
+
+        for (SolrDocument document : response.getResults()) {
+            int index = Integer.parseInt(document.getFieldValue(SOLR_FIELD_ID).toString().substring("bulk-".length()));
+
+            // the last added version of each document wins
+            String route = createRoute(DOCUMENT_COUNT - 10 + index);
+            assertEquals(LineStringUtils.calculateHash(route), document.getFieldValue("geoHash"));
+            assertNotNull(document.getFieldValue("geoGeom"));
+        }
+
+        MetricRegistry metricRegistry = getMetricRegistry();
+        assertTrue(metricRegistry.getMeters().get("UPDATE.linestringHash.documents").getCount() >= DOCUMENT_COUNT);
+        assertEquals(0, metricRegistry.getCounters().get("UPDATE.linestringHash.pending").getCount());
+    }
+
+    @Test
+    public void atomicUpdateOfRoute() throws Exception {
+        String route = createRoute(1);
+        infrastructureRule.getSolrClient().add(createDocument("atomic", route));
+        infrastructureRule.getSolrClient().commit(true, true);
+        long unchanged = getMetricRegistry().getMeters().get("UPDATE.linestringHash.unchanged").getCount();
+
+        // the same route: nothing is calculated
+        infrastructureRule.getSolrClient().add(createAtomicUpdate("atomic", route, "north"));
+        infrastructureRule.getSolrClient().commit(true, true);
+
+        assertEquals(unchanged + 1, getMetricRegistry().getMeters().get("UPDATE.linestringHash.unchanged").getCount());
+        SolrDocument document = getDocument("atomic");
+        assertEquals("north", document.getFieldValue("geoDirection"));
+        assertEquals(LineStringUtils.calculateHash(route), document.getFieldValue("geoHash"));
+        assertNotNull(document.getFieldValue("geoGeom"));
+        assertEquals(1, countNearRoute("geoGeometry"));
+
+        // another route: the fields are calculated again
+        String otherRoute = createRoute(2);
+        infrastructureRule.getSolrClient().add(createAtomicUpdate("atomic", otherRoute, "south"));
+        infrastructureRule.getSolrClient().commit(true, true);
+
+        assertEquals(unchanged + 1, getMetricRegistry().getMeters().get("UPDATE.linestringHash.unchanged").getCount());
+        document = getDocument("atomic");
+        assertEquals("south", document.getFieldValue("geoDirection"));
+        assertEquals(LineStringUtils.calculateHash(otherRoute), document.getFieldValue("geoHash"));
+        assertEquals(0, countNearRoute("geoGeometry"));
+    }
+
+    @Test
+    public void storedHash() throws Exception {
+        String route = createRoute(3);
+        infrastructureRule.getSolrClient().add(createDocument("hash", route));
+        infrastructureRule.getSolrClient().commit(true, true);
+
+        // the 64 bit murmur3 hash is stored as a long
+        Object hash = getDocument("hash").getFieldValue("geoHash");
+        assertTrue(hash instanceof Long);
+        assertEquals(LineStringUtils.calculateHash(route), hash);
+    }
+
+    @Test
+    public void routesCachedPerCore() throws Exception {
+        LineStringUtils.purgeCache();
+        String route = createRoute(4);
+        infrastructureRule.getSolrClient().add(createDocument("cached", route));
+        infrastructureRule.getSolrClient().commit(true, true);
+
+        // the core has a LineStringCacheComponent, the static cache is left alone
+        long hash = LineStringUtils.calculateHash(route);
+        EmbeddedSolrServer solrServer = (EmbeddedSolrServer) infrastructureRule.getSolrClient();
+        try (SolrCore core = solrServer.getCoreContainer().getCore("test")) {
+            assertNotNull(LineStringCacheComponent.forCore(core).getLineStringCache().getIfPresent(hash));
+        }
+        assertNull(LineStringUtils.getLineStringCache(null).getIfPresent(hash));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        infrastructureRule.getSolrClient().deleteByQuery("*:*");
+        infrastructureRule.getSolrClient().commit(true, true);
+    }
+
+    private static SolrInputDocument createDocument(String id, String route) {
+        SolrInputDocument solrDocument = new SolrInputDocument();
+        solrDocument.addField(SOLR_FIELD_ID, id);
+        solrDocument.addField("geo", route);
+        return solrDocument;
+    }
+
+    private static SolrInputDocument createAtomicUpdate(String id, String route, String direction) {
+        SolrInputDocument solrDocument = new SolrInputDocument();
+        solrDocument.addField(SOLR_FIELD_ID, id);
+        solrDocument.addField("geo", Collections.singletonMap("set", route));
+        solrDocument.addField("geoDirection", Collections.singletonMap("set", direction));
+        return solrDocument;
+    }
+
+    private static long countNearRoute(String routeField) throws Exception {
+        // the first point of createRoute(1)
+        SolrQuery query = new SolrQuery("{!frange l=0 u=0.001}pointsDistance(" + routeField + ", geoHash)");
+        query.add("corridor.point", "POINT(16.4 48.11)");
+        return infrastructureRule.getSolrClient().query(query).getResults().getNumFound();
+    }
+
+    private static SolrDocument getDocument(String id) throws Exception {
+        return infrastructureRule.getSolrClient().getById(id);
+    }
+
+    private static MetricRegistry getMetricRegistry() {
+        EmbeddedSolrServer solrServer = (EmbeddedSolrServer) infrastructureRule.getSolrClient();
+        try (SolrCore core = solrServer.getCoreContainer().getCore("test")) {
+            return core.getSolrMetricsContext().getMetricRegistry();
+        }
+    }
+
+    private static String createRoute(int index) {
+        return "LINESTRING(16.4 48." + (10 + index) + ",16.5 48." + (20 + index) + ")";
+    }
+}
@@ -167,6 +167,43 @@ public class TestCircleDistance {
         assertEquals(0.0, (double) response.getResults().get(0).getFieldValue(SOLR_FIELD_CIRCLE_DISTANCE), 0.00009);
     }
 
+    @Test
+    public void circleDistanceGeodesic() throws SolrServerException, IOException {
+        SolrQuery query = new SolrQuery(SOLR_FIELD_ID + ":" + DOCUMENT_ID_1);
+        query.add("corridor.point", "POINT(16.41 48.19)");
+        query.add("corridor.circle.point", "POINT(16.41 48.19)");
+        query.add("corridor.circle.radius", "0.1");
+        query.add("corridor.circle.distance", "geodesic");
+        query.addField(SOLR_FIELD_CIRCLE_DISTANCE + ":circleDistance(geo, geoHash)");
+        query.addField("pointsDistance:pointsDistance(geo, geoHash)");
+
+        QueryResponse response = infrastructureRule.getSolrClient().query(query);
+        double pointsDistance = (double) response.getResults().get(0).getFieldValue("pointsDistance");
+        assertEquals(pointsDistance - 0.1, (double) response.getResults().get(0).getFieldValue(SOLR_FIELD_CIRCLE_DISTANCE),
+            0.0000001);
+
+        query.set("corridor.circle.radius", String.valueOf(pointsDistance + 0.001));
+        response = infrastructureRule.getSolrClient().query(query);
+        assertEquals(0.0, (double) response.getResults().get(0).getFieldValue(SOLR_FIELD_CIRCLE_DISTANCE), 0.0);
+    }
+
+    @Test
+    public void circlePointsCorridor() throws SolrServerException, IOException {
+        SolrQuery query = new SolrQuery("{!pointsCorridor polygonField=geoGeom u=0.01}circleDistance(geo, geoHash)");
+        query.setRows(Integer.MAX_VALUE);
+        query.add("corridor.circle.point", "POINT(16.41654 48.2)");
+        query.add("corridor.circle.radius", "0.01");
+        query.addField(SOLR_FIELD_ID);
+
+        QueryResponse response = infrastructureRule.getSolrClient().query(query);
+        assertEquals(1, response.getResults().getNumFound());
+        assertEquals(DOCUMENT_ID_1, response.getResults().get(0).getFieldValue(SOLR_FIELD_ID));
+
+        query.set("corridor.circle.radius", "0.001");
+        response = infrastructureRule.getSolrClient().query(query);
+        assertEquals(0, response.getResults().getNumFound());
+    }
+
     @Test
     public void circleCacheCleanup() throws SolrServerException, IOException {
         circleExactMatch();
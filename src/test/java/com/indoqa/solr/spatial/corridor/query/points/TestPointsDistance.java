@@ -17,16 +17,27 @@
 package com.indoqa.solr.spatial.corridor.query.points;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 
 import com.indoqa.solr.spatial.corridor.HashGeometry;
+import com.indoqa.solr.spatial.corridor.LineStringCacheComponent;
 import com.indoqa.solr.spatial.corridor.LineStringUtils;
+import com.indoqa.solr.spatial.corridor.geo.RouteIndex;
+import com.indoqa.solr.spatial.corridor.geo.RouteIndexView;
+import com.indoqa.solr.spatial.corridor.wkt.WktUtils;
+import org.apache.lucene.util.BytesRef;
 import org.apache.solr.client.solrj.SolrQuery;
 import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.client.solrj.embedded.EmbeddedSolrServer;
 import org.apache.solr.client.solrj.response.QueryResponse;
 import org.apache.solr.common.SolrDocument;
 import org.apache.solr.common.SolrInputDocument;
+import org.apache.solr.core.SolrCore;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.ClassRule;
@@ -57,6 +68,60 @@ public class TestPointsDistance {
         assertEquals(DOCUMENT_ID_1, response.getResults().get(0).getFieldValue(SOLR_FIELD_ID));
     }
 
+    @Test
+    public void pointsBinaryRoute() throws SolrServerException, IOException {
+        SolrQuery query = new SolrQuery("{!frange l=0 u=0.01}pointsDistance(geoBinary, geoHash)");
+        query.setRows(Integer.MAX_VALUE);
+        query.add("corridor.point", "POINT(16.41618 48.19288)");
+        query.addField(SOLR_FIELD_ID);
+        query.addField(SOLR_FIELD_POINT_POSITION + ":pointsPosition(geoBinary, geoHash)");
+
+        QueryResponse response = infrastructureRule.getSolrClient().query(query);
+        assertEquals(1, response.getResults().getNumFound());
+        assertEquals(DOCUMENT_ID_1, response.getResults().get(0).getFieldValue(SOLR_FIELD_ID));
+        assertEquals(0.0475, (double) response.getResults().get(0).getFieldValue(SOLR_FIELD_POINT_POSITION), 0.00009);
+    }
+
+    @Test
+    public void pointsRouteGeometry() throws SolrServerException, IOException {
+        SolrQuery query = new SolrQuery("{!frange l=0 u=0.01}pointsDistance(geoGeometry, geoHash)");
+        query.setRows(Integer.MAX_VALUE);
+        query.add("corridor.point", "POINT(16.41618 48.19288)");
+        query.addField(SOLR_FIELD_ID);
+        query.addField(SOLR_FIELD_POINT_POSITION + ":pointsPosition(geoGeometry, geoHash)");
+
+        QueryResponse response = infrastructureRule.getSolrClient().query(query);
+        assertEquals(1, response.getResults().getNumFound());
+        assertEquals(DOCUMENT_ID_1, response.getResults().get(0).getFieldValue(SOLR_FIELD_ID));
+        assertEquals(0.0475, (double) response.getResults().get(0).getFieldValue(SOLR_FIELD_POINT_POSITION), 0.00009);
+    }
+
+    @Test
+    public void pointsCorridorSimplifiedRoute() throws SolrServerException, IOException {
+        StringBuilder route = new StringBuilder("LINESTRING(");
+        for (int i = 0; i < 400; i++) {
+            route.append(i == 0 ? "" : ",").append(16.3 + i * 0.0005).append(' ').append(47.5 + (i % 2) * 0.0002);
+        }
+        route.append(')');
+
+        SolrInputDocument solrDocument = new SolrInputDocument();
+        solrDocument.addField(SOLR_FIELD_ID, DOCUMENT_ID_2);
+        solrDocument.addField("geo", route.toString());
+        infrastructureRule.getSolrClient().add(solrDocument);
+        infrastructureRule.getSolrClient().commit(true, true);
+
+        // between 50 and 80 meters north of the route, inside its 100 meters polygon
+        for (double upperBound : new double[] {0.01, 0.03, 0.09, 2}) {
+            SolrQuery query = new SolrQuery("{!pointsCorridor polygonField=geoGeom u=" + upperBound + "}pointsDistance(geoGeometry, geoHash)");
+            query.add("corridor.point", "POINT(16.35 47.5007)");
+            query.addField(SOLR_FIELD_ID);
+            query.addField("distance:pointsDistance(geo, geoHash)");
+
+            QueryResponse response = infrastructureRule.getSolrClient().query(query);
+            assertEquals(upperBound > 0.08 ? 1 : 0, response.getResults().getNumFound());
+        }
+    }
+
     @Test
     public void pointsFarAwayBroadDistance() throws SolrServerException, IOException {
         SolrQuery query = new SolrQuery("{!frange l=0 u=2}pointsDistance(geo, geoHash)");
@@ -103,6 +168,38 @@ public class TestPointsDistance {
         assertEquals(0.0475, (double) response.getResults().get(0).getFieldValue(SOLR_FIELD_POINT_POSITION), 0.00009);
     }
 
+    @Test
+    public void pointsPositionMultiplePoints() throws SolrServerException, IOException {
+        for (String field : new String[] {"geo", "geoBinary", "geoGeometry"}) {
+            SolrQuery query = new SolrQuery(SOLR_FIELD_ID + ":" + DOCUMENT_ID_1);
+            query.add("corridor.point", "POINT(16.41618 48.19288)", "POINT(16.40812 48.18743)");
+            query.addField(SOLR_FIELD_POINT_POSITION + ":pointsPosition(" + field + ", geoHash)");
+
+            QueryResponse response = infrastructureRule.getSolrClient().query(query);
+            List<?> positions = (List<?>) response.getResults().get(0).getFieldValue(SOLR_FIELD_POINT_POSITION);
+            assertEquals(2, positions.size());
+            assertEquals(0.0475, (double) positions.get(0), 0.00009);
+            assertEquals(1.1306, (double) positions.get(1), 0.0001);
+        }
+    }
+
+    @Test
+    public void pointsCorridor() throws SolrServerException, IOException {
+        SolrQuery query = new SolrQuery("{!pointsCorridor polygonField=geoGeom u=0.01}pointsDistance(geo, geoHash)");
+        query.setRows(Integer.MAX_VALUE);
+        query.add("corridor.point", "POINT(16.41618 48.19288)");
+        query.addField(SOLR_FIELD_ID);
+
+        QueryResponse response = infrastructureRule.getSolrClient().query(query);
+        assertEquals(1, response.getResults().getNumFound());
+        assertEquals(DOCUMENT_ID_1, response.getResults().get(0).getFieldValue(SOLR_FIELD_ID));
+
+        query.set("corridor.point", "POINT(16.41654 48.2)");
+        query.setQuery("{!pointsCorridor polygonField=geoGeom u=2}pointsDistance(geo, geoHash)");
+        response = infrastructureRule.getSolrClient().query(query);
+        assertEquals(0, response.getResults().getNumFound());
+    }
+
     @Test
     public void pointsCacheCleanup() throws SolrServerException, IOException {
         pointsExactMatch();
@@ -112,6 +209,79 @@ public class TestPointsDistance {
         pointsExactMatch();
     }
 
+    @Test
+    public void pointsWarmedCache() throws Exception {
+        LineStringUtils.purgeCache();
+
+        SolrInputDocument solrDocument = new SolrInputDocument();
+        solrDocument.addField(SOLR_FIELD_ID, DOCUMENT_ID_2);
+        solrDocument.addField("geo", "LINESTRING(16.39751 48.18451,16.38832 48.18125)");
+        infrastructureRule.getSolrClient().add(solrDocument);
+        infrastructureRule.getSolrClient().commit(true, true);
+
+        EmbeddedSolrServer solrServer = (EmbeddedSolrServer) infrastructureRule.getSolrClient();
+        try (SolrCore core = solrServer.getCoreContainer().getCore("test")) {
+            LineStringCacheComponent component = LineStringCacheComponent.forCore(core);
+
+            // all routes of the new searcher, without any query
+            assertEquals(3, component.getLineStringCache().getSize());
+        }
+    }
+
+    @Test
+    public void pointsDistanceSimplifiedRouteHighLatitude() {
+        // a degree of longitude is half as long as a degree of latitude: the planar nearest point of the simplified route is
+        // at the far end of the detour, the one of the route at (0.98 60)
+        RouteIndex routeIndex = new RouteIndex(WktUtils.parseLineString(
+            "LINESTRING(1.0 59.0, 1.0 59.9, 0.98 60.0, 1.0 60.1, 1.0 61.5, 5 66, 0.5 60.99, -0.5 60.99)"));
+        RouteIndexView route = new RouteIndexView().wrap(new BytesRef(routeIndex.encode(3000)));
+        assertEquals(1, route.getSimplificationCount());
+
+        PointsDistanceValueSource valueSource = new PointsDistanceValueSource(
+            Collections.singletonList(WktUtils.parsePoint("POINT(0 60)")), null, null);
+        double distance = valueSource.getValue(route);
+        assertEquals(54.7, distance, 0.1);
+        assertEquals(distance, valueSource.withBounds(0, 100).getValue(route), 0);
+    }
+
+    @Test
+    public void pointsCoreCache() throws SolrServerException, IOException {
+        LineStringUtils.purgeCache();
+        pointsExactMatch();
+
+        EmbeddedSolrServer solrServer = (EmbeddedSolrServer) infrastructureRule.getSolrClient();
+        try (SolrCore core = solrServer.getCoreContainer().getCore("test")) {
+            LineStringCacheComponent component = LineStringCacheComponent.forCore(core);
+
+            // the route and the empty route
+            assertEquals(2, component.getLineStringCache().getSize());
+            assertTrue(component.getSegmentCache().getSize() > 0);
+
+            Map<?, ?> metrics = (Map<?, ?>) core.getSolrMetricsContext()
+                .getMetricRegistry()
+                .getGauges()
+                .get("CACHE.corridorCache")
+                .getValue();
+            assertEquals(2L, metrics.get("size"));
+            assertTrue((Long) metrics.get("segment.lookups") > 0);
+        }
+    }
+
+    @Test
+    public void pointsPositionCoreCache() throws SolrServerException, IOException {
+        LineStringUtils.purgeCache();
+        pointsPositionMatch();
+
+        EmbeddedSolrServer solrServer = (EmbeddedSolrServer) infrastructureRule.getSolrClient();
+        try (SolrCore core = solrServer.getCoreContainer().getCore("test")) {
+            LineStringCacheComponent component = LineStringCacheComponent.forCore(core);
+
+            // the indexes of the cached routes
+            assertTrue(component.getRouteIndexCache().getSize() > 0);
+            assertTrue(component.getRouteIndexCache().getSize() <= component.getLineStringCache().getSize());
+        }
+    }
+
     @Before
     public void setup() throws Exception {
         String lineString = "LINESTRING(16.41654 48.19311,16.40812 48.18743)";
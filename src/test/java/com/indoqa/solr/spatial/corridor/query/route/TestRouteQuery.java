@@ -0,0 +1,250 @@
+/*
+ * Licensed to the Indoqa Software Design und Beratung GmbH (Indoqa) under
+ * one or more contributor license agreements. See the NOTICE file distributed
+ * with this work for additional information regarding copyright ownership.
+ * Indoqa licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.indoqa.solr.spatial.corridor.query.route;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.IOException;
+
+import com.indoqa.solr.spatial.corridor.EmbeddedSolrInfrastructureRule;
+import com.indoqa.solr.spatial.corridor.LineStringUtils;
+import com.indoqa.solr.spatial.corridor.geo.GeoUtils;
+import com.indoqa.solr.spatial.corridor.wkt.WktUtils;
+import org.apache.solr.client.solrj.SolrQuery;
+import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.client.solrj.embedded.EmbeddedSolrServer;
+import org.apache.solr.client.solrj.response.QueryResponse;
+import org.apache.solr.common.SolrInputDocument;
+import org.apache.solr.core.SolrCore;
+import org.apache.solr.search.SolrCache;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.linearref.LocationIndexedLine;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+public class TestRouteQuery {
+
+    private static final String SOLR_FIELD_ID = "id";
+    private static final String SOLR_FIELD_LATLON = "latLon";
+    private static final String SOLR_FIELD_LATLON_POINT = "latLonPoint";
+    private static final String SOLR_FIELD_DISTANCE = "distance";
+    private static final String SOLR_FIELD_POSITION = "position";
+
+    private static final String DOCUMENT_ID_NEAR = "near";
+    private static final String DOCUMENT_ID_FAR = "far";
+
+    private static final String ROUTE = "LINESTRING(16.37039615861895 48.20057128552842, 16.358677998093828 48.19719643770264, "
+        + "16.339207685325686 48.188545501731866, 16.31468318513228 48.18773608789617, 16.28094963169427 48.192208688939225)";
+
+    @ClassRule
+    public static EmbeddedSolrInfrastructureRule infrastructureRule = new EmbeddedSolrInfrastructureRule();
+
+    @Test
+    public void corridorNear() throws SolrServerException, IOException {
+        SolrQuery query = new SolrQuery("{!corridor field=latLon buffer=2}");
+        query.setRows(Integer.MAX_VALUE);
+        query.add("corridor.route", ROUTE);
+        query.addField(SOLR_FIELD_ID);
+        query.addField(SOLR_FIELD_DISTANCE + ":corridorDistance(latLon)");
+
+        QueryResponse response = infrastructureRule.getSolrClient().query(query);
+        assertEquals(1, response.getResults().getNumFound());
+        assertEquals(DOCUMENT_ID_NEAR, response.getResults().get(0).getFieldValue(SOLR_FIELD_ID));
+        assertEquals(0.751, (double) response.getResults().get(0).getFieldValue(SOLR_FIELD_DISTANCE), 0.001);
+    }
+
+    @Test
+    public void corridorFarAway() throws SolrServerException, IOException {
+        SolrQuery query = new SolrQuery("{!corridor field=latLon buffer=10000}");
+        query.setRows(Integer.MAX_VALUE);
+        query.add("corridor.route", ROUTE);
+
+        QueryResponse response = infrastructureRule.getSolrClient().query(query);
+        assertEquals(2, response.getResults().getNumFound());
+
+        query.setQuery("{!corridor field=latLon buffer=6700}");
+        response = infrastructureRule.getSolrClient().query(query);
+        assertEquals(1, response.getResults().getNumFound());
+        assertEquals(DOCUMENT_ID_NEAR, response.getResults().get(0).getFieldValue(SOLR_FIELD_ID));
+    }
+
+    @Test
+    public void corridorLatLonPoint() throws SolrServerException, IOException {
+        SolrQuery query = new SolrQuery("{!corridor field=latLonPoint buffer=2}");
+        query.setRows(Integer.MAX_VALUE);
+        query.add("corridor.route", ROUTE);
+        query.addField(SOLR_FIELD_ID);
+
+        QueryResponse response = infrastructureRule.getSolrClient().query(query);
+        assertEquals(1, response.getResults().getNumFound());
+        assertEquals(DOCUMENT_ID_NEAR, response.getResults().get(0).getFieldValue(SOLR_FIELD_ID));
+
+        // the document without a location is not at 0,0
+        query.setQuery("{!corridor field=latLonPoint buffer=10000}");
+        response = infrastructureRule.getSolrClient().query(query);
+        assertEquals(2, response.getResults().getNumFound());
+
+        query.setQuery("{!corridor field=latLonPoint buffer=0.75}");
+        response = infrastructureRule.getSolrClient().query(query);
+        assertEquals(0, response.getResults().getNumFound());
+    }
+
+    @Test
+    public void corridorRefineNearThreshold() throws SolrServerException, IOException {
+        // geodesic distance is 0.7508580, haversine distance is 0.7508638
+        SolrQuery query = new SolrQuery("{!corridor field=latLon buffer=0.750861 distance=haversine}");
+        query.setRows(Integer.MAX_VALUE);
+        query.add("corridor.route", ROUTE);
+
+        QueryResponse response = infrastructureRule.getSolrClient().query(query);
+        assertEquals(0, response.getResults().getNumFound());
+
+        query.setQuery("{!corridor field=latLon buffer=0.750861 distance=haversine refine=true}");
+        response = infrastructureRule.getSolrClient().query(query);
+        assertEquals(1, response.getResults().getNumFound());
+        assertEquals(DOCUMENT_ID_NEAR, response.getResults().get(0).getFieldValue(SOLR_FIELD_ID));
+
+        query.setQuery("{!corridor field=latLon buffer=6700 distance=equirectangular refine=true}");
+        response = infrastructureRule.getSolrClient().query(query);
+        assertEquals(1, response.getResults().getNumFound());
+    }
+
+    @Test
+    public void corridorRefineLargeBuffer() throws SolrServerException, IOException {
+        // New York: the geodesic distance is 6812 km, the equirectangular distance 7218 km
+        SolrQuery query = new SolrQuery("{!corridor field=latLon buffer=7000}");
+        query.setRows(Integer.MAX_VALUE);
+        query.add("corridor.route", ROUTE);
+
+        QueryResponse response = infrastructureRule.getSolrClient().query(query);
+        assertEquals(2, response.getResults().getNumFound());
+
+        query.setQuery("{!corridor field=latLon buffer=7000 distance=equirectangular refine=true}");
+        response = infrastructureRule.getSolrClient().query(query);
+        assertEquals(2, response.getResults().getNumFound());
+
+        query.setQuery("{!corridor field=latLon buffer=7000 distance=equirectangular}");
+        response = infrastructureRule.getSolrClient().query(query);
+        assertEquals(1, response.getResults().getNumFound());
+    }
+
+    @Test
+    public void corridorDistanceStrategy() throws SolrServerException, IOException {
+        SolrQuery query = new SolrQuery("{!corridor field=latLon buffer=2}");
+        query.add("corridor.route", ROUTE);
+        query.add("corridor.distance", "equirectangular");
+        query.addField(SOLR_FIELD_DISTANCE + ":corridorDistance(latLon)");
+
+        QueryResponse response = infrastructureRule.getSolrClient().query(query);
+        assertEquals(0.7508638, (double) response.getResults().get(0).getFieldValue(SOLR_FIELD_DISTANCE), 0.0000001);
+    }
+
+    @Test
+    public void corridorPositionGeodesic() throws SolrServerException, IOException {
+        SolrQuery query = new SolrQuery(SOLR_FIELD_ID + ":" + DOCUMENT_ID_NEAR);
+        query.add("corridor.route", ROUTE);
+        query.add("corridor.position", "geodesic");
+        query.addField(SOLR_FIELD_POSITION + ":corridorPosition(latLon)");
+
+        // the geodesic length of the route up to the projection of the location onto its third segment
+        LineString lineString = WktUtils.parseLineString(ROUTE);
+        LocationIndexedLine indexedLine = new LocationIndexedLine(lineString);
+        Coordinate projected = indexedLine.extractPoint(indexedLine.project(new Coordinate(16.33, 48.195)));
+        double expected = GeoUtils.calculateDistanceInKilometers(lineString.getCoordinateN(0), lineString.getCoordinateN(1))
+            + GeoUtils.calculateDistanceInKilometers(lineString.getCoordinateN(1), lineString.getCoordinateN(2))
+            + GeoUtils.calculateDistanceInKilometers(lineString.getCoordinateN(2), projected);
+
+        QueryResponse response = infrastructureRule.getSolrClient().query(query);
+        assertEquals(expected, (double) response.getResults().get(0).getFieldValue(SOLR_FIELD_POSITION), 0.001);
+    }
+
+    @Test
+    public void corridorEmptyRoute() throws SolrServerException, IOException {
+        SolrQuery query = new SolrQuery("{!corridor field=latLon buffer=10000}");
+        query.add("corridor.route", "LINESTRING()");
+
+        QueryResponse response = infrastructureRule.getSolrClient().query(query);
+        assertEquals(0, response.getResults().getNumFound());
+    }
+
+    @Test
+    public void corridorRouteCache() throws Exception {
+        // not used by other tests, which might have cached it already
+        String route = ROUTE.replace("LINESTRING(", "LINESTRING (");
+        long hash = LineStringUtils.calculateHash(route);
+        assertNull(getCachedRoute(hash));
+
+        SolrQuery query = new SolrQuery("{!corridor field=latLon buffer=2}");
+        query.add("corridor.route", route);
+        query.addField(SOLR_FIELD_DISTANCE + ":corridorDistance(latLon)");
+        query.addSort("corridorDistance(latLon)", SolrQuery.ORDER.asc);
+        infrastructureRule.getSolrClient().query(query);
+
+        LineString lineString = getCachedRoute(hash);
+        assertNotNull(lineString);
+        assertEquals(5, lineString.getNumPoints());
+
+        // autowarmed into the cache of the next searcher
+        infrastructureRule.getSolrClient().deleteById(DOCUMENT_ID_FAR);
+        infrastructureRule.getSolrClient().commit(true, true);
+        assertEquals(lineString, getCachedRoute(hash));
+    }
+
+    private static LineString getCachedRoute(long hash) throws IOException {
+        EmbeddedSolrServer solrServer = (EmbeddedSolrServer) infrastructureRule.getSolrClient();
+
+        try (SolrCore core = solrServer.getCoreContainer().getCore("test")) {
+            return core.withSearcher(searcher -> {
+                @SuppressWarnings("unchecked")
+                SolrCache<Long, LineString> cache = searcher.getCache(LineStringUtils.CACHE_NAME);
+                return cache.get(hash);
+            });
+        }
+    }
+
+    @Before
+    public void setup() throws Exception {
+        SolrInputDocument solrDocument = new SolrInputDocument();
+        solrDocument.addField(SOLR_FIELD_ID, DOCUMENT_ID_NEAR);
+        solrDocument.addField(SOLR_FIELD_LATLON, "48.195,16.33");
+        solrDocument.addField(SOLR_FIELD_LATLON_POINT, "48.195,16.33");
+        infrastructureRule.getSolrClient().add(solrDocument);
+
+        // New York
+        solrDocument = new SolrInputDocument();
+        solrDocument.addField(SOLR_FIELD_ID, DOCUMENT_ID_FAR);
+        solrDocument.addField(SOLR_FIELD_LATLON, "40.7128,-74.006");
+        solrDocument.addField(SOLR_FIELD_LATLON_POINT, "40.7128,-74.006");
+        infrastructureRule.getSolrClient().add(solrDocument);
+
+        solrDocument = new SolrInputDocument();
+        solrDocument.addField(SOLR_FIELD_ID, "id-no-geo");
+        infrastructureRule.getSolrClient().add(solrDocument);
+        infrastructureRule.getSolrClient().commit(true, true);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        infrastructureRule.getSolrClient().deleteByQuery("*:*");
+        infrastructureRule.getSolrClient().commit(true, true);
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Licensed to the Indoqa Software Design und Beratung GmbH (Indoqa) under
+ * one or more contributor license agreements. See the NOTICE file distributed
+ * with this work for additional information regarding copyright ownership.
+ * Indoqa licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.indoqa.solr.spatial.corridor.wkt;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Random;
+
+import org.junit.Test;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.LineString;
+
+public class TestWktLineStringParser {
+
+    private static final GeometryFactory GEOMETRY_FACTORY = new GeometryFactory();
+
+    @Test
+    public void emptyLineString() {
+        assertNull(WktLineStringParser.parse("LINESTRING()", GEOMETRY_FACTORY));
+        assertNull(WktLineStringParser.parse("LINESTRING EMPTY", GEOMETRY_FACTORY));
+        assertNull(WktLineStringParser.parse("POINT(16.41 48.19)", GEOMETRY_FACTORY));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void malformedCoordinates() {
+        WktLineStringParser.parse("LINESTRING(16.41654 48.19311,16.40812)", GEOMETRY_FACTORY);
+    }
+
+    @Test
+    public void parseLikeDouble() {
+        Random random = new Random(42);
+        StringBuilder wkt = new StringBuilder("LINESTRING(");
+        double[] expected = new double[2000];
+
+        for (int i = 0; i < expected.length; i++) {
+            double value = (random.nextDouble() - 0.5) * 360;
+            if (i % 3 == 0) {
+                value = Math.round(value * 100000) / 100000.0;
+            }
+            if (i % 7 == 0) {
+                value *= 1e-12;
+            }
+            expected[i] = value;
+
+            wkt.append(value);
+            wkt.append(i % 2 == 0 ? " " : ", ");
+        }
+        wkt.setLength(wkt.length() - 2);
+        wkt.append(")");
+
+        LineString lineString = WktLineStringParser.parse(wkt, GEOMETRY_FACTORY);
+
+        for (int i = 0; i < expected.length / 2; i++) {
+            assertEquals(expected[i * 2], lineString.getCoordinateN(i).x, 0);
+            assertEquals(expected[i * 2 + 1], lineString.getCoordinateN(i).y, 0);
+        }
+    }
+
+    @Test
+    public void skipAdditionalOrdinates() {
+        LineString lineString = WktLineStringParser.parse("linestring z ( 16.41654  48.19311 100 ,16.40812 48.18743 200.5 )",
+            GEOMETRY_FACTORY);
+
+        assertEquals(2, lineString.getNumPoints());
+        assertEquals(16.40812, lineString.getCoordinateN(1).x, 0);
+        assertEquals(48.18743, lineString.getCoordinateN(1).y, 0);
+    }
+}